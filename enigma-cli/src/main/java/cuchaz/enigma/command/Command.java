@@ -30,7 +30,7 @@ public abstract class Command {
 	public abstract void run(String... args) throws Exception;
 
 	protected static EnigmaProject openProject(Path fileJarIn, Path fileMappings) throws Exception {
-		ProgressListener progress = new ConsoleProgressListener();
+		ProgressListener progress = ProgressListener.throttled(new ConsoleProgressListener());
 
 		Enigma enigma = Enigma.create();
 
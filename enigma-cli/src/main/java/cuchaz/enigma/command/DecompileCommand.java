@@ -45,11 +45,8 @@ public class DecompileCommand extends Command {
 
 		EnigmaProject project = openProject(fileJarIn, fileMappings);
 
-		ProgressListener progress = new ConsoleProgressListener();
+		ProgressListener progress = ProgressListener.throttled(new ConsoleProgressListener());
 
-		EnigmaProject.JarExport jar = project.exportRemappedJar(progress);
-		EnigmaProject.SourceExport source = jar.decompile(progress, decompilerService, DecompileErrorStrategy.TRACE_AS_SOURCE);
-
-		source.write(fileJarOut, progress);
+		project.exportRemappedSources(fileJarOut, progress, decompilerService, DecompileErrorStrategy.TRACE_AS_SOURCE);
 	}
 }
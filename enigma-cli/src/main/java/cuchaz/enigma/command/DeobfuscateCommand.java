@@ -29,7 +29,7 @@ public class DeobfuscateCommand extends Command {
 
 		EnigmaProject project = openProject(fileJarIn, fileMappings);
 
-		ProgressListener progress = new ConsoleProgressListener();
+		ProgressListener progress = ProgressListener.throttled(new ConsoleProgressListener());
 
 		EnigmaProject.JarExport jar = project.exportRemappedJar(progress);
 		jar.write(fileJarOut, progress);
@@ -10,8 +10,40 @@ import java.util.List;
 public interface ClientPacketHandler {
     void openMappings(EntryTree<EntryMapping> mappings);
 
+    /**
+     * Receives part of the mappings sent by the server. The mappings are
+     * opened once the last part was received.
+     */
+    void receiveMappingsChunk(EntryTree<EntryMapping> mappings, boolean last);
+
     boolean applyChangeFromServer(EntryChange<?> change);
 
+    default boolean applyChangesFromServer(List<EntryChange<?>> changes) {
+        boolean applied = true;
+        for (EntryChange<?> change : changes) {
+            applied &= applyChangeFromServer(change);
+        }
+        return applied;
+    }
+
+    /**
+     * Remembers the protocol version of the server, which is only sent by
+     * servers supporting {@link EnigmaServer#BATCH_PROTOCOL_VERSION}.
+     */
+    void setServerProtocolVersion(int protocolVersion);
+
+    /**
+     * Remembers the version of the mappings received from the server, which
+     * is sent when reconnecting to only receive the changes made since.
+     */
+    void setMappingsVersion(MappingsVersion version);
+
+    /**
+     * Notes that the server handled a change packet of this client, see
+     * {@link EnigmaServer#CHANGE_ACK_PROTOCOL_VERSION}.
+     */
+    void acknowledgeChangePacket();
+
     void disconnectIfConnected(String reason);
 
     void sendPacket(Packet<ServerPacketHandler> packet);
@@ -1,12 +1,17 @@
 package cuchaz.enigma.network;
 
 import com.google.common.io.MoreFiles;
+import com.google.common.util.concurrent.MoreExecutors;
 import cuchaz.enigma.*;
 import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.translation.mapping.EntryChange;
+import cuchaz.enigma.translation.mapping.EntryUtil;
 import cuchaz.enigma.translation.mapping.serde.MappingParseException;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
 import cuchaz.enigma.translation.mapping.serde.MappingFormat;
 import cuchaz.enigma.utils.Utils;
+import cuchaz.enigma.utils.validation.PrintValidatable;
+import cuchaz.enigma.utils.validation.ValidationContext;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
@@ -14,21 +19,43 @@ import joptsimple.ValueConverter;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.net.Socket;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
 
+import static cuchaz.enigma.utils.Utils.withLock;
+
 public class DedicatedEnigmaServer extends EnigmaServer {
+	public static final int PACKET_HANDLER_THREADS = Integer.getInteger("enigma.server.packetThreads", Runtime.getRuntime().availableProcessors());
+	// changes are durable once in the write-ahead log, saving only compacts it
+	public static final long SAVE_INTERVAL_MINUTES = Long.getLong("enigma.server.saveInterval", 5);
 
 	private final EnigmaProfile profile;
 	private final MappingFormat mappingFormat;
 	private final Path mappingsFile;
 	private final PrintWriter log;
+	private final WriteAheadLog writeAheadLog;
+	// whether changes were applied since the last save, guarded by the mappings lock
+	private boolean dirty;
 	private BlockingQueue<Runnable> tasks = new LinkedBlockingDeque<>();
+	private final ExecutorService packetHandlers = Executors.newFixedThreadPool(PACKET_HANDLER_THREADS, task -> {
+		Thread thread = new Thread(task);
+		thread.setName("Server packet handler");
+		thread.setDaemon(true);
+		return thread;
+	});
+	// packets of a client are handled in order, packets of different clients in parallel
+	private final Map<Socket, Executor> clientExecutors = new ConcurrentHashMap<>();
 
 	public DedicatedEnigmaServer(
 			byte[] jarChecksum,
@@ -38,13 +65,44 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 			Path mappingsFile,
 			PrintWriter log,
 			EntryRemapper mappings,
-			int port
+			int port,
+			ServerTransport transport,
+			WriteAheadLog writeAheadLog
 	) {
-		super(jarChecksum, password, mappings, port);
+		super(jarChecksum, password, mappings, port, transport);
 		this.profile = profile;
 		this.mappingFormat = mappingFormat;
 		this.mappingsFile = mappingsFile;
 		this.log = log;
+		this.writeAheadLog = writeAheadLog;
+		getMetrics().registerGauge("taskQueueDepth", () -> tasks.size());
+	}
+
+	/**
+	 * Applies the changes which were logged, but not saved before the server
+	 * was last stopped.
+	 */
+	private void replayWriteAheadLog() {
+		List<EntryChange<?>> changes = writeAheadLog.getRecoveredChanges();
+		if (changes.isEmpty()) {
+			return;
+		}
+
+		withLock(getMappingsLock().writeLock(), () -> {
+			ValidationContext vc = new ValidationContext();
+			vc.setActiveElement(PrintValidatable.INSTANCE);
+			for (EntryChange<?> change : changes) {
+				EntryUtil.applyChange(vc, getMappings(), change);
+			}
+			dirty = true;
+		});
+		log("Replayed " + changes.size() + " changes from the write-ahead log");
+	}
+
+	@Override
+	protected void onChangeApplied(EntryChange<?> change) {
+		writeAheadLog.append(change);
+		dirty = true;
 	}
 
 	@Override
@@ -52,6 +110,17 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 		tasks.add(task);
 	}
 
+	@Override
+	protected void runOnClientThread(Socket client, Runnable task) {
+		clientExecutors.computeIfAbsent(client, c -> MoreExecutors.newSequentialExecutor(packetHandlers)).execute(task);
+	}
+
+	@Override
+	public void kick(Socket client, String reason) {
+		super.kick(client, reason);
+		clientExecutors.remove(client);
+	}
+
 	@Override
 	public void log(String message) {
 		super.log(message);
@@ -89,6 +158,16 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 				.withValuesConvertedBy(PathConverter.INSTANCE)
 				.defaultsTo(Paths.get("log.txt"));
 
+		OptionSpec<Path> writeAheadLogOpt = parser.accepts("wal", "The write-ahead log, which keeps changes made since the last save")
+				.withRequiredArg()
+				.withValuesConvertedBy(PathConverter.INSTANCE);
+
+		OptionSpec<Integer> metricsPortOpt = parser.accepts("metrics-port", "Serve metrics as JSON on http://localhost:<port>/metrics")
+				.withRequiredArg()
+				.ofType(Integer.class);
+
+		OptionSpec<Void> nioOpt = parser.accepts("nio", "Serve all clients from a single non-blocking I/O thread");
+
 		OptionSet parsedArgs = parser.parse(args);
 		Path jar = parsedArgs.valueOf(jarOpt);
 		Path mappingsFile = parsedArgs.valueOf(mappingsOpt);
@@ -100,6 +179,7 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 			System.exit(1);
 		}
 		Path logFile = parsedArgs.valueOf(logFileOpt);
+		Path writeAheadLogFile = parsedArgs.has(writeAheadLogOpt) ? parsedArgs.valueOf(writeAheadLogOpt) : mappingsFile.resolveSibling(mappingsFile.getFileName() + ".wal");
 
 		System.out.println("Starting Enigma server");
 		DedicatedEnigmaServer server;
@@ -129,8 +209,17 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 
 			PrintWriter log = new PrintWriter(Files.newBufferedWriter(logFile));
 
-			server = new DedicatedEnigmaServer(checksum, password, profile, mappingFormat, mappingsFile, log, mappings, port);
+			ServerTransport transport = parsedArgs.has(nioOpt) ? new NioServerTransport() : new SocketServerTransport();
+			WriteAheadLog writeAheadLog = new WriteAheadLog(writeAheadLogFile);
+			server = new DedicatedEnigmaServer(checksum, password, profile, mappingFormat, mappingsFile, log, mappings, port, transport, writeAheadLog);
+			server.replayWriteAheadLog();
+			writeAheadLog.start();
 			server.start();
+
+			if (parsedArgs.has(metricsPortOpt)) {
+				new MetricsEndpoint(server.getMetrics()).start(parsedArgs.valueOf(metricsPortOpt));
+			}
+
 			System.out.println("Server started");
 		} catch (IOException | MappingParseException e) {
 			System.err.println("Error starting server!");
@@ -141,12 +230,20 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 
 		// noinspection RedundantSuppression
 		// noinspection Convert2MethodRef - javac 8 bug
-		Executors.newScheduledThreadPool(1).scheduleAtFixedRate(() -> server.runOnThread(() -> server.saveMappings()), 0, 1, TimeUnit.MINUTES);
-		Runtime.getRuntime().addShutdownHook(new Thread(server::saveMappings));
+		Executors.newScheduledThreadPool(1).scheduleAtFixedRate(() -> server.runOnThread(() -> server.saveMappings()), 0, SAVE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+		Runtime.getRuntime().addShutdownHook(new Thread(server::shutdown));
+
+		server.runTasks();
+	}
 
+	/**
+	 * Runs the tasks of the server thread on the calling thread, until it is
+	 * interrupted.
+	 */
+	void runTasks() {
 		while (true) {
 			try {
-				server.tasks.take().run();
+				tasks.take().run();
 			} catch (InterruptedException e) {
 				break;
 			}
@@ -159,11 +256,41 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 		System.exit(0);
 	}
 
+	/**
+	 * Saves the mappings if they changed, and truncates the write-ahead log
+	 * which held the changes.
+	 */
 	private void saveMappings() {
-		mappingFormat.write(getMappings().getObfToDeobf(), getMappings().takeMappingDelta(), mappingsFile, ProgressListener.none(), profile.getMappingSaveParameters());
+		withLock(getMappingsLock().writeLock(), () -> {
+			if (!dirty) {
+				return;
+			}
+
+			long start = System.nanoTime();
+			mappingFormat.write(getMappings().getObfToDeobf(), getMappings().takeMappingDelta(), mappingsFile, ProgressListener.none(), profile.getMappingSaveParameters());
+			dirty = false;
+			getMetrics().getHistogram("save").recordSince(start);
+
+			try {
+				writeAheadLog.truncate();
+			} catch (IOException e) {
+				System.err.println("Failed to truncate the write-ahead log");
+				e.printStackTrace();
+			}
+		});
 		log.flush();
 	}
 
+	private void shutdown() {
+		saveMappings();
+		try {
+			writeAheadLog.close();
+		} catch (IOException e) {
+			System.err.println("Failed to close the write-ahead log");
+			e.printStackTrace();
+		}
+	}
+
 	public static class PathConverter implements ValueConverter<Path> {
 		public static final ValueConverter<Path> INSTANCE = new PathConverter();
 
@@ -7,41 +7,69 @@ import javax.swing.*;
 import java.io.*;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.concurrent.Executor;
 
 public class EnigmaClient {
 
 	private final ClientPacketHandler controller;
+	private final Executor packetHandler;
 
 	private final String ip;
 	private final int port;
 	private Socket socket;
-	private DataOutput output;
+	private DataOutputStream output;
+	private final ByteArrayOutputStream packetBuffer = new ByteArrayOutputStream();
+	private boolean framed;
 
 	public EnigmaClient(ClientPacketHandler controller, String ip, int port) {
+		this(controller, ip, port, SwingUtilities::invokeLater);
+	}
+
+	/**
+	 * @param packetHandler the executor received packets are handled on
+	 */
+	public EnigmaClient(ClientPacketHandler controller, String ip, int port, Executor packetHandler) {
 		this.controller = controller;
+		this.packetHandler = packetHandler;
 		this.ip = ip;
 		this.port = port;
 	}
 
 	public void connect() throws IOException {
 		socket = new Socket(ip, port);
-		output = new DataOutputStream(socket.getOutputStream());
+		output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
 		Thread thread = new Thread(() -> {
 			try {
-				DataInput input = new DataInputStream(socket.getInputStream());
+				DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				boolean framed = false;
+				byte[] frame = new byte[0];
 				while (true) {
-					int packetId;
+					Packet<ClientPacketHandler> packet;
 					try {
-						packetId = input.readUnsignedByte();
+						if (framed) {
+							int length = PacketFraming.readFrameLength(input, Integer.MAX_VALUE);
+							if (frame.length < length) {
+								frame = new byte[length];
+							}
+							input.readFully(frame, 0, length);
+							packet = PacketFraming.readS2CPacket(PacketFraming.frameInput(frame, 0, length));
+						} else {
+							int packetId = input.readUnsignedByte();
+							if (packetId == PacketFraming.START_FRAMING_ID) {
+								framed = true;
+								continue;
+							}
+							packet = PacketRegistry.createS2CPacket(packetId);
+							if (packet == null) {
+								throw new IOException("Received invalid packet id " + packetId);
+							}
+							packet.read(input);
+						}
 					} catch (EOFException | SocketException e) {
 						break;
 					}
-					Packet<ClientPacketHandler> packet = PacketRegistry.createS2CPacket(packetId);
-					if (packet == null) {
-						throw new IOException("Received invalid packet id " + packetId);
-					}
-					packet.read(input);
-					SwingUtilities.invokeLater(() -> packet.handle(controller));
+					Packet<ClientPacketHandler> finalPacket = packet;
+					packetHandler.execute(() -> finalPacket.handle(controller));
 				}
 			} catch (IOException e) {
 				controller.disconnectIfConnected(e.toString());
@@ -66,10 +94,24 @@ public class EnigmaClient {
 	}
 
 
-	public void sendPacket(Packet<ServerPacketHandler> packet) {
+	public synchronized void sendPacket(Packet<ServerPacketHandler> packet) {
 		try {
-			output.writeByte(PacketRegistry.getC2SId(packet));
-			packet.write(output);
+			if (framed) {
+				packetBuffer.reset();
+				DataOutputStream packetOutput = new DataOutputStream(packetBuffer);
+				packetOutput.writeByte(PacketRegistry.getC2SId(packet));
+				packet.write(packetOutput);
+				output.writeInt(packetBuffer.size());
+				packetBuffer.writeTo(output);
+			} else {
+				output.writeByte(PacketRegistry.getC2SId(packet));
+				packet.write(output);
+			}
+			output.flush();
+
+			if (PacketFraming.startsFraming(packet)) {
+				framed = true;
+			}
 		} catch (IOException e) {
 			controller.disconnectIfConnected(e.toString());
 		}
@@ -1,114 +1,136 @@
 package cuchaz.enigma.network;
 
 import java.io.*;
-import java.net.ServerSocket;
 import java.net.Socket;
-import java.net.SocketException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+import javax.annotation.Nullable;
 
 import cuchaz.enigma.network.packet.*;
 import cuchaz.enigma.translation.mapping.EntryChange;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.EntryUtil;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.utils.validation.ValidationContext;
+
+import static cuchaz.enigma.utils.Utils.withLock;
 
 public abstract class EnigmaServer {
 
 	// https://discordapp.com/channels/507304429255393322/566418023372816394/700292322918793347
 	public static final int DEFAULT_PORT = 34712;
-	public static final int PROTOCOL_VERSION = 1;
+	public static final int PROTOCOL_VERSION = 6;
+	public static final int MIN_PROTOCOL_VERSION = 1;
+	public static final int CHUNKED_SYNC_PROTOCOL_VERSION = 3;
+	public static final int DELTA_SYNC_PROTOCOL_VERSION = 4;
+	public static final int BATCH_PROTOCOL_VERSION = 5;
+	public static final int CHANGE_ACK_PROTOCOL_VERSION = 6;
+	// how long changes are collected before they are sent to the clients
+	public static final long COALESCE_WINDOW_MILLIS = Long.getLong("enigma.server.coalesceWindow", 50);
 	public static final int CHECKSUM_SIZE = 20;
 	public static final int MAX_PASSWORD_LENGTH = 255; // length is written as a byte in the login packet
 
 	private final int port;
-	private ServerSocket socket;
+	private final ServerTransport transport;
 	private List<Socket> clients = new CopyOnWriteArrayList<>();
-	private Map<Socket, String> usernames = new HashMap<>();
-	private Set<Socket> unapprovedClients = new HashSet<>();
+	private Map<Socket, String> usernames = new ConcurrentHashMap<>();
+	private Map<Socket, Integer> protocolVersions = new ConcurrentHashMap<>();
+	private Set<Socket> unapprovedClients = ConcurrentHashMap.newKeySet();
 
 	private final byte[] jarChecksum;
 	private final char[] password;
 
 	public static final int DUMMY_SYNC_ID = 0;
 	private final EntryRemapper mappings;
-	private Map<Entry<?>, Integer> syncIds = new HashMap<>();
-	private Map<Integer, Entry<?>> inverseSyncIds = new HashMap<>();
-	private Map<Integer, Set<Socket>> clientsNeedingConfirmation = new HashMap<>();
-	private int nextSyncId = DUMMY_SYNC_ID + 1;
-
-	private static int nextIoId = 0;
+	// guards the mappings, which are changed from the packet handling threads
+	private final ReadWriteLock mappingsLock = new ReentrantReadWriteLock();
+	private final EntryChangeTracker changeTracker = new EntryChangeTracker();
+	// the change log is locked while changes are sent, so that a syncing client doesn't miss any
+	private final EntryChangeLog changeLog = new EntryChangeLog();
+	private final EntryChangeCoalescer pendingChanges = new EntryChangeCoalescer();
+	// the sync id the queued changes of each client are locked with, guarded by pendingChanges
+	private final Map<Socket, Integer> pendingSyncIds = new HashMap<>();
+	// messages announcing the queued changes, guarded by pendingChanges
+	private final List<PendingMessages> pendingMessages = new ArrayList<>();
+	private ScheduledExecutorService flushScheduler;
+	private boolean flushScheduled;
+
+	private final ServerMetrics metrics = new ServerMetrics();
+	private final LatencyHistogram packetHandlingTime = metrics.getHistogram("packetHandling");
 
 	public EnigmaServer(byte[] jarChecksum, char[] password, EntryRemapper mappings, int port) {
+		this(jarChecksum, password, mappings, port, new SocketServerTransport());
+	}
+
+	public EnigmaServer(byte[] jarChecksum, char[] password, EntryRemapper mappings, int port, ServerTransport transport) {
 		this.jarChecksum = jarChecksum;
 		this.password = password;
 		this.mappings = mappings;
 		this.port = port;
+		this.transport = transport;
+
+		metrics.registerGauge("connectedClients", () -> clients.size());
+		metrics.registerGauge("mappings", () -> withLock(mappingsLock.readLock(), () -> mappings.getObfToDeobf().getAllEntries().count()));
+		metrics.registerClientGauge("unconfirmedChanges", changeTracker::getPendingCount);
+		metrics.registerClientGauge("queuedBytes", transport::getQueuedBytes);
 	}
 
 	public void start() throws IOException {
-		socket = new ServerSocket(port);
-		log("Server started on " + socket.getInetAddress() + ":" + port);
-		Thread thread = new Thread(() -> {
-			try {
-				while (!socket.isClosed()) {
-					acceptClient();
-				}
-			} catch (SocketException e) {
-				System.out.println("Server closed");
-			} catch (IOException e) {
-				e.printStackTrace();
+		transport.start(port, new ServerTransport.Listener() {
+			@Override
+			public void onConnect(Socket client) {
+				metrics.clientConnected(client);
+				clients.add(client);
 			}
-		});
-		thread.setName("Server client listener");
-		thread.setDaemon(true);
-		thread.start();
-	}
 
-	private void acceptClient() throws IOException {
-		Socket client = socket.accept();
-		clients.add(client);
-		Thread thread = new Thread(() -> {
-			try {
-				DataInput input = new DataInputStream(client.getInputStream());
-				while (true) {
-					int packetId;
-					try {
-						packetId = input.readUnsignedByte();
-					} catch (EOFException | SocketException e) {
-						break;
-					}
-					Packet<ServerPacketHandler> packet = PacketRegistry.createC2SPacket(packetId);
-					if (packet == null) {
-						throw new IOException("Received invalid packet id " + packetId);
-					}
-					packet.read(input);
-					runOnThread(() -> packet.handle(new ServerPacketHandler(client, this)));
+			@Override
+			public void onPacket(Socket client, Packet<ServerPacketHandler> packet, int size) {
+				metrics.packetReceived(client, packet, size);
+				long received = System.nanoTime();
+				runOnClientThread(client, () -> {
+					packet.handle(new ServerPacketHandler(client, EnigmaServer.this));
+					packetHandlingTime.recordSince(received);
+				});
+			}
+
+			@Override
+			public void onDisconnect(Socket client, IOException error) {
+				if (error != null) {
+					kick(client, error.toString());
+					error.printStackTrace();
+				} else {
+					kick(client, "disconnect.disconnected");
 				}
-			} catch (IOException e) {
-				kick(client, e.toString());
-				e.printStackTrace();
-				return;
 			}
-			kick(client, "disconnect.disconnected");
 		});
-		thread.setName("Server I/O thread #" + (nextIoId++));
-		thread.setDaemon(true);
-		thread.start();
+		flushScheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task);
+			thread.setName("Server change flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		log("Server started on " + transport.getAddress() + ":" + port);
 	}
 
 	public void stop() {
 		runOnThread(() -> {
-			if (socket != null && !socket.isClosed()) {
+			if (transport.isRunning()) {
+				flushChanges();
+				flushScheduler.shutdown();
 				for (Socket client : clients) {
 					kick(client, "disconnect.server_closed");
 				}
-				try {
-					socket.close();
-				} catch (IOException e) {
-					System.err.println("Failed to close server socket");
-					e.printStackTrace();
-				}
+				transport.stop();
 			}
 		});
 	}
@@ -118,17 +140,12 @@ public abstract class EnigmaServer {
 
 		sendPacket(client, new KickS2CPacket(reason));
 
-		clientsNeedingConfirmation.values().removeIf(list -> {
-			list.remove(client);
-			return list.isEmpty();
-		});
+		changeTracker.removeClient(client);
+		unapprovedClients.remove(client);
+		metrics.clientDisconnected(client);
 		String username = usernames.remove(client);
-		try {
-			client.close();
-		} catch (IOException e) {
-			System.err.println("Failed to close server client socket");
-			e.printStackTrace();
-		}
+		protocolVersions.remove(client);
+		transport.disconnect(client);
 
 		if (username != null) {
 			System.out.println("Kicked " + username + " because " + reason);
@@ -141,28 +158,97 @@ public abstract class EnigmaServer {
 		return usernames.containsValue(username);
 	}
 
-	public void setUsername(Socket client, String username) {
-		usernames.put(client, username);
+	/**
+	 * Sets the username of a client.
+	 *
+	 * @return whether the username was already taken by another client
+	 */
+	public boolean setUsername(Socket client, String username) {
+		boolean taken;
+		synchronized (usernames) {
+			taken = isUsernameTaken(username);
+			usernames.put(client, username);
+		}
+		metrics.setClientName(client, username);
 		sendUsernamePacket();
+		return taken;
 	}
 
 	private void sendUsernamePacket() {
-		List<String> usernames = new ArrayList<>(this.usernames.values());
-		Collections.sort(usernames);
-		sendToAll(new UserListS2CPacket(usernames));
+		// sent while locked, so that clients can't receive an outdated list last
+		synchronized (usernames) {
+			List<String> usernames = new ArrayList<>(this.usernames.values());
+			Collections.sort(usernames);
+			sendToAll(new UserListS2CPacket(usernames));
+		}
 	}
 
 	public String getUsername(Socket client) {
 		return usernames.get(client);
 	}
 
+	public void setProtocolVersion(Socket client, int protocolVersion) {
+		protocolVersions.put(client, protocolVersion);
+	}
+
+	public int getProtocolVersion(Socket client) {
+		return protocolVersions.getOrDefault(client, MIN_PROTOCOL_VERSION);
+	}
+
+	/**
+	 * Sends the mappings to a client which just logged in. A client resuming
+	 * from a version still covered by the change log only gets the changes
+	 * made since.
+	 *
+	 * @param client     the client
+	 * @param resumeFrom the version of the mappings the client already has
+	 */
+	public void sendMappings(Socket client, @Nullable MappingsVersion resumeFrom) {
+		synchronized (changeLog) {
+			withLock(mappingsLock.readLock(), () -> sendMappings0(client, resumeFrom));
+		}
+	}
+
+	private void sendMappings0(Socket client, @Nullable MappingsVersion resumeFrom) {
+		int protocolVersion = getProtocolVersion(client);
+		if (resumeFrom != null && protocolVersion >= DELTA_SYNC_PROTOCOL_VERSION) {
+			List<EntryChange<?>> changes = changeLog.getChangesSince(resumeFrom);
+			if (changes != null) {
+				if (protocolVersion >= BATCH_PROTOCOL_VERSION) {
+					if (!changes.isEmpty()) {
+						sendPacket(client, new EntryChangeBatchS2CPacket(DUMMY_SYNC_ID, changeLog.getVersion(), changes));
+					}
+				} else {
+					for (EntryChange<?> change : changes) {
+						sendPacket(client, new EntryChangeS2CPacket(DUMMY_SYNC_ID, change));
+					}
+				}
+				sendPacket(client, new MappingsVersionS2CPacket(changeLog.getVersion()));
+				log("Resynced " + changes.size() + " changes to " + getUsername(client));
+				return;
+			}
+		}
+
+		EntryTree<EntryMapping> mappings = this.mappings.getObfToDeobf();
+		if (protocolVersion >= CHUNKED_SYNC_PROTOCOL_VERSION) {
+			for (SyncMappingsChunkS2CPacket chunk : SyncMappingsChunkS2CPacket.split(mappings, SyncMappingsChunkS2CPacket.DEFAULT_CLASSES_PER_CHUNK)) {
+				sendPacket(client, chunk);
+			}
+		} else {
+			sendPacket(client, new SyncMappingsS2CPacket(mappings));
+		}
+
+		if (protocolVersion >= DELTA_SYNC_PROTOCOL_VERSION) {
+			sendPacket(client, new MappingsVersionS2CPacket(changeLog.getVersion()));
+		}
+	}
+
 	public void sendPacket(Socket client, Packet<ClientPacketHandler> packet) {
 		if (!client.isClosed()) {
-			int packetId = PacketRegistry.getS2CId(packet);
 			try {
-				DataOutput output = new DataOutputStream(client.getOutputStream());
-				output.writeByte(packetId);
-				packet.write(output);
+				byte[] bytes = encodePacket(packet);
+				transport.send(client, bytes);
+				metrics.packetSent(client, packet, bytes.length);
 			} catch (IOException e) {
 				if (!(packet instanceof KickS2CPacket)) {
 					kick(client, e.toString());
@@ -172,69 +258,243 @@ public abstract class EnigmaServer {
 		}
 	}
 
+	private static byte[] encodePacket(Packet<ClientPacketHandler> packet) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeByte(PacketRegistry.getS2CId(packet));
+		packet.write(output);
+		return bytes.toByteArray();
+	}
+
 	public void sendToAll(Packet<ClientPacketHandler> packet) {
-		for (Socket client : clients) {
-			sendPacket(client, packet);
-		}
+		sendToAllExcept(null, packet);
 	}
 
 	public void sendToAllExcept(Socket excluded, Packet<ClientPacketHandler> packet) {
+		sendToAllExcept(excluded, protocolVersion -> packet);
+	}
+
+	/**
+	 * Sends a packet to every client except one, picking the packet by the
+	 * protocol version of the client. Every distinct packet is only encoded
+	 * once, and clients for which no packet is picked are skipped. The encoded
+	 * packet is shared by the send queues of all clients, so a broadcast never
+	 * waits for a slow client.
+	 */
+	private void sendToAllExcept(Socket excluded, IntFunction<Packet<ClientPacketHandler>> packetForVersion) {
+		Map<Packet<ClientPacketHandler>, byte[]> encoded = new IdentityHashMap<>();
 		for (Socket client : clients) {
-			if (client != excluded) {
-				sendPacket(client, packet);
+			Packet<ClientPacketHandler> packetForClient = packetForVersion.apply(getProtocolVersion(client));
+			if (client != excluded && packetForClient != null && !client.isClosed()) {
+				byte[] bytes = encoded.computeIfAbsent(packetForClient, packet -> {
+					try {
+						return encodePacket(packet);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+
+				try {
+					transport.send(client, bytes);
+					metrics.packetSent(client, packetForClient, bytes.length);
+				} catch (IOException e) {
+					kick(client, e.toString());
+					e.printStackTrace();
+				}
 			}
 		}
 	}
 
-	public boolean canModifyEntry(Socket client, Entry<?> entry) {
-		if (unapprovedClients.contains(client)) {
-			return false;
+	/**
+	 * Queues a change applied to the mappings to be sent to every client
+	 * except the one it came from. Changes are collected for
+	 * {@link #COALESCE_WINDOW_MILLIS}, so that changes to the same entry are
+	 * merged and many changes are sent at once.
+	 *
+	 * <p>The changed entry is locked right away, with one sync id for all
+	 * changes the client makes until they're sent, so that the other clients
+	 * can't overwrite a change they haven't received yet.
+	 *
+	 * @param origin the client which made the change
+	 * @param change the applied change
+	 */
+	public void queueChange(Socket origin, EntryChange<?> change) {
+		synchronized (pendingChanges) {
+			Integer syncId = pendingSyncIds.get(origin);
+			if (syncId == null || !changeTracker.extend(syncId, List.of(change.getTarget()))) {
+				pendingSyncIds.put(origin, lockEntry(origin, change.getTarget()));
+			}
+
+			pendingChanges.add(origin, change);
+			scheduleFlush();
 		}
+	}
 
-		Integer syncId = syncIds.get(entry);
-		if (syncId == null) {
-			return true;
+	/**
+	 * Queues messages announcing changes, which are sent after the changes
+	 * queued so far, so that clients don't read about a change before they
+	 * received it.
+	 *
+	 * @param summary the message sent instead of the detailed messages to
+	 *                clients which understand it, or {@code null} to send
+	 *                the detailed messages to every client
+	 * @param details the detailed messages
+	 */
+	public void queueMessages(@Nullable Message summary, List<Message> details) {
+		synchronized (pendingChanges) {
+			pendingMessages.add(new PendingMessages(summary, details));
+			scheduleFlush();
 		}
-		Set<Socket> clients = clientsNeedingConfirmation.get(syncId);
-		return clients == null || !clients.contains(client);
 	}
 
-	public int lockEntry(Socket exception, Entry<?> entry) {
-		int syncId = nextSyncId;
-		nextSyncId++;
-		// sync id is sent as an unsigned short, can't have more than 65536
-		if (nextSyncId == 65536) {
-			nextSyncId = DUMMY_SYNC_ID + 1;
+	private void scheduleFlush() {
+		if (!flushScheduled) {
+			flushScheduled = true;
+			if (COALESCE_WINDOW_MILLIS <= 0) {
+				runOnThread(this::flushChanges);
+			} else {
+				flushScheduler.schedule(() -> runOnThread(this::flushChanges), COALESCE_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Logs and sends all queued changes, followed by the queued messages.
+	 */
+	private void flushChanges() {
+		List<PendingMessages> messages;
+		synchronized (changeLog) {
+			Map<Socket, List<EntryChange<?>>> groups;
+			Map<Socket, Integer> syncIds;
+			synchronized (pendingChanges) {
+				flushScheduled = false;
+				groups = pendingChanges.drain();
+				syncIds = new HashMap<>(pendingSyncIds);
+				pendingSyncIds.clear();
+				messages = new ArrayList<>(pendingMessages);
+				pendingMessages.clear();
+			}
+
+			sendChanges(groups, syncIds);
 		}
-		Integer oldSyncId = syncIds.get(entry);
-		if (oldSyncId != null) {
-			clientsNeedingConfirmation.remove(oldSyncId);
+
+		for (PendingMessages message : messages) {
+			if (message.summary() != null) {
+				sendMessages(message.summary(), message.details());
+			} else {
+				message.details().forEach(this::sendMessage);
+			}
 		}
-		syncIds.put(entry, syncId);
-		inverseSyncIds.put(syncId, entry);
+	}
+
+	private void sendChanges(Map<Socket, List<EntryChange<?>>> groups, Map<Socket, Integer> syncIds) {
+		for (Map.Entry<Socket, List<EntryChange<?>>> group : groups.entrySet()) {
+			Socket origin = group.getKey();
+			List<EntryChange<?>> changes = group.getValue();
+			// changes merged from several clients weren't locked for all of them yet
+			Integer syncId = origin != null ? syncIds.get(origin) : null;
+			if (syncId == null) {
+				syncId = lockEntries(origin, changes.stream().<Entry<?>>map(EntryChange::getTarget).toList());
+			}
+
+			List<MappingsVersion> versions = new ArrayList<>(changes.size());
+			for (EntryChange<?> change : changes) {
+				changeLog.append(change);
+				versions.add(changeLog.getVersion());
+			}
+
+			Packet<ClientPacketHandler> batchPacket = new EntryChangeBatchS2CPacket(syncId, changeLog.getVersion(), changes);
+			sendToAllExcept(origin, protocolVersion -> protocolVersion >= BATCH_PROTOCOL_VERSION ? batchPacket : null);
+
+			// older clients get every change on its own
+			for (int i = 0; i < changes.size(); i++) {
+				Packet<ClientPacketHandler> packet = new EntryChangeS2CPacket(syncId, changes.get(i));
+				Packet<ClientPacketHandler> versionedPacket = new VersionedEntryChangeS2CPacket(syncId, versions.get(i), changes.get(i));
+				sendToAllExcept(origin, protocolVersion -> protocolVersion >= BATCH_PROTOCOL_VERSION ? null
+						: protocolVersion >= DELTA_SYNC_PROTOCOL_VERSION ? versionedPacket : packet);
+			}
+		}
+	}
+
+	public boolean canModifyEntry(Socket client, Entry<?> entry) {
+		return !unapprovedClients.contains(client) && changeTracker.canModify(client, entry);
+	}
+
+	/**
+	 * Applies a change from a client to the mappings and queues it to be sent
+	 * to the other clients, unless the client may not modify the entry. The
+	 * entry is locked meanwhile, so that changes from several clients can be
+	 * applied in parallel.
+	 *
+	 * @param client the client which made the change
+	 * @param change the change
+	 * @param vc     the validation context the change is applied in
+	 * @return whether the change was applied
+	 */
+	public boolean applyChange(Socket client, EntryChange<?> change, ValidationContext vc) {
+		return changeTracker.withEntryLock(change.getTarget(), () -> {
+			if (!canModifyEntry(client, change.getTarget())) {
+				return false;
+			}
+
+			boolean applied = withLock(mappingsLock.writeLock(), () -> {
+				EntryUtil.applyChange(vc, mappings, change);
+				if (!vc.canProceed()) {
+					return false;
+				}
+
+				onChangeApplied(change);
+				return true;
+			});
+			if (!applied) {
+				return false;
+			}
+
+			queueChange(client, change);
+			return true;
+		});
+	}
+
+	public int lockEntry(Socket exception, Entry<?> entry) {
+		return lockEntries(exception, List.of(entry));
+	}
+
+	/**
+	 * Locks entries with a single new sync id, which every client except the
+	 * given one has to confirm before it may modify the entries again.
+	 *
+	 * @param exception the client which doesn't need to confirm, or {@code null}
+	 * @param entries   the entries to lock
+	 * @return the sync id
+	 */
+	public int lockEntries(@Nullable Socket exception, Collection<Entry<?>> entries) {
 		Set<Socket> clients = new HashSet<>(this.clients);
 		clients.remove(exception);
-		clientsNeedingConfirmation.put(syncId, clients);
-		return syncId;
+		return changeTracker.lock(entries, clients);
 	}
 
+	/**
+	 * Confirms that a client received a change.
+	 *
+	 * @param client the client
+	 * @param syncId the sync id as sent by the client, which only holds the
+	 *               low 16 bits of the sync id
+	 */
 	public void confirmChange(Socket client, int syncId) {
 		if (usernames.containsKey(client)) {
 			unapprovedClients.remove(client);
 		}
 
-		Set<Socket> clients = clientsNeedingConfirmation.get(syncId);
-		if (clients != null) {
-			clients.remove(client);
-			if (clients.isEmpty()) {
-				clientsNeedingConfirmation.remove(syncId);
-				syncIds.remove(inverseSyncIds.remove(syncId));
+		if (syncId != DUMMY_SYNC_ID) {
+			Integer resolvedSyncId = changeTracker.resolveSyncId(client, syncId);
+			if (resolvedSyncId != null) {
+				changeTracker.confirm(client, resolvedSyncId);
 			}
 		}
 	}
 
 	public void sendCorrectMapping(Socket client, Entry<?> entry, boolean refreshClassTree) {
-		EntryMapping oldMapping = mappings.getDeobfMapping(entry);
+		EntryMapping oldMapping = withLock(mappingsLock.readLock(), () -> mappings.getDeobfMapping(entry));
 		String oldName = oldMapping.targetName();
 		if (oldName == null) {
 			sendPacket(client, new EntryChangeS2CPacket(DUMMY_SYNC_ID, EntryChange.modify(entry).clearDeobfName()));
@@ -243,14 +503,41 @@ public abstract class EnigmaServer {
 		}
 	}
 
+	/**
+	 * Tells a client that one of its change packets was handled. A change
+	 * applied to the mappings is logged even if the client disconnects before
+	 * it was sent to the others, so the client may resume from its version.
+	 */
+	public void acknowledgeChangePacket(Socket client) {
+		if (getProtocolVersion(client) >= CHANGE_ACK_PROTOCOL_VERSION) {
+			sendPacket(client, new EntryChangeAckS2CPacket());
+		}
+	}
+
+	/**
+	 * Called after a change was applied to the mappings, while the mappings
+	 * are still locked.
+	 */
+	protected void onChangeApplied(EntryChange<?> change) {
+	}
+
 	protected abstract void runOnThread(Runnable task);
 
+	/**
+	 * Runs a task handling a packet from a client. Tasks of the same client
+	 * have to run in order, but tasks of different clients may run in
+	 * parallel. By default, every task runs on the server thread.
+	 */
+	protected void runOnClientThread(Socket client, Runnable task) {
+		runOnThread(task);
+	}
+
 	public void log(String message) {
 		System.out.println(message);
 	}
 
 	protected boolean isRunning() {
-		return !socket.isClosed();
+		return transport.isRunning();
 	}
 
 	public byte[] getJarChecksum() {
@@ -261,13 +548,41 @@ public abstract class EnigmaServer {
 		return password;
 	}
 
+	public ServerMetrics getMetrics() {
+		return metrics;
+	}
+
 	public EntryRemapper getMappings() {
 		return mappings;
 	}
 
+	/**
+	 * Gets the lock guarding the mappings. Code outside of packet handling has
+	 * to hold it while accessing the mappings.
+	 */
+	public ReadWriteLock getMappingsLock() {
+		return mappingsLock;
+	}
+
+	/**
+	 * Sends a summary message to clients which understand it, and the detailed
+	 * messages to older clients.
+	 */
+	public void sendMessages(Message summary, List<Message> details) {
+		log(String.format("[MSG] %s", summary.translate()));
+		Packet<ClientPacketHandler> summaryPacket = new MessageS2CPacket(summary);
+		sendToAllExcept(null, protocolVersion -> protocolVersion >= BATCH_PROTOCOL_VERSION ? summaryPacket : null);
+		for (Message message : details) {
+			Packet<ClientPacketHandler> packet = new MessageS2CPacket(message);
+			sendToAllExcept(null, protocolVersion -> protocolVersion >= BATCH_PROTOCOL_VERSION ? null : packet);
+		}
+	}
+
 	public void sendMessage(Message message) {
 		log(String.format("[MSG] %s", message.translate()));
 		sendToAll(new MessageS2CPacket(message));
 	}
 
+	private record PendingMessages(@Nullable Message summary, List<Message> details) {
+	}
 }
@@ -0,0 +1,53 @@
+package cuchaz.enigma.network;
+
+import java.net.Socket;
+import java.util.*;
+
+import cuchaz.enigma.translation.mapping.EntryChange;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+/**
+ * Collects the changes applied to the server mappings until they are sent to
+ * the clients, merging changes to the same entry.
+ *
+ * <p>The coalescer is not thread safe, the server synchronizes on it.
+ */
+public class EntryChangeCoalescer {
+	private final Map<Entry<?>, Pending> pending = new LinkedHashMap<>();
+
+	/**
+	 * Adds a change, merging it with a pending change to the same entry.
+	 *
+	 * @param origin the client which made the change
+	 * @param change the applied change
+	 */
+	public void add(Socket origin, EntryChange<?> change) {
+		pending.merge(change.getTarget(), new Pending(origin, change), (previous, next) -> new Pending(
+				previous.origin == next.origin ? previous.origin : null,
+				previous.change.mergeWith(next.change)
+		));
+	}
+
+	public boolean isEmpty() {
+		return pending.isEmpty();
+	}
+
+	/**
+	 * Removes all pending changes, grouped by the client they must not be
+	 * sent back to. Changes to the same entry made by several clients are
+	 * grouped under {@code null}, as every client needs the merged result.
+	 *
+	 * @return the pending changes in the order they were first made
+	 */
+	public Map<Socket, List<EntryChange<?>>> drain() {
+		Map<Socket, List<EntryChange<?>>> groups = new LinkedHashMap<>();
+		for (Pending change : pending.values()) {
+			groups.computeIfAbsent(change.origin, origin -> new ArrayList<>()).add(change.change);
+		}
+		pending.clear();
+		return groups;
+	}
+
+	private record Pending(Socket origin, EntryChange<?> change) {
+	}
+}
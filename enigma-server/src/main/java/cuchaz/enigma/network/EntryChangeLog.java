@@ -0,0 +1,73 @@
+package cuchaz.enigma.network;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import cuchaz.enigma.translation.mapping.EntryChange;
+
+/**
+ * A bounded log of the changes applied to the mappings of a server. Every
+ * logged change increments the mappings version, and the most recent changes
+ * can be replayed to clients which already have the mappings of an older
+ * version.
+ *
+ * <p>The log is not thread safe, the server synchronizes on it.
+ */
+public class EntryChangeLog {
+	public static final int DEFAULT_CAPACITY = Integer.getInteger("enigma.server.changeLogSize", 16384);
+
+	private final long id = new SecureRandom().nextLong();
+	private final EntryChange<?>[] changes;
+	private long version;
+
+	public EntryChangeLog() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public EntryChangeLog(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+
+		this.changes = new EntryChange<?>[capacity];
+	}
+
+	/**
+	 * Logs a change, possibly dropping the oldest change in the log.
+	 *
+	 * @param change the applied change
+	 * @return the mappings version after the change
+	 */
+	public long append(EntryChange<?> change) {
+		changes[(int) (version % changes.length)] = change;
+		return ++version;
+	}
+
+	public MappingsVersion getVersion() {
+		return new MappingsVersion(id, version);
+	}
+
+	/**
+	 * Gets the changes which were logged after the given version, in the
+	 * order they were applied.
+	 *
+	 * @param from the version to get the changes after
+	 * @return the changes, or {@code null} if the version is from a different
+	 *         log or older than the oldest logged change
+	 */
+	@Nullable
+	public List<EntryChange<?>> getChangesSince(MappingsVersion from) {
+		if (from.logId() != id || from.version() > version || from.version() < version - changes.length) {
+			return null;
+		}
+
+		List<EntryChange<?>> result = new ArrayList<>((int) (version - from.version()));
+		for (long v = from.version(); v < version; v++) {
+			result.add(changes[(int) (v % changes.length)]);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,212 @@
+package cuchaz.enigma.network;
+
+import java.net.Socket;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import com.google.common.util.concurrent.Striped;
+
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.utils.Utils;
+
+/**
+ * Tracks the changes sent to the clients until every client confirmed them.
+ * A client may not modify an entry before it confirmed the last change to it,
+ * so that it can't overwrite changes it doesn't know about yet.
+ *
+ * <p>The tracker is thread safe. Every entry is guarded by one of a fixed
+ * number of striped locks, which {@link #withEntryLock(Entry, Supplier)}
+ * holds while a change to the entry is checked and applied.
+ *
+ * <p>Sync ids are 32 bit, but are sent to the clients as unsigned shorts. A
+ * confirmed id is matched against the ids the client still has to confirm,
+ * see {@link #resolveSyncId(Socket, int)}.
+ */
+public class EntryChangeTracker {
+	private static final int LOCK_STRIPES = 64;
+	private static final int WIRE_SYNC_ID_MASK = 0xFFFF;
+
+	private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+	private final AtomicInteger nextSyncId = new AtomicInteger(EnigmaServer.DUMMY_SYNC_ID);
+	private final Map<Entry<?>, Integer> syncIds = new ConcurrentHashMap<>();
+	private final Map<Integer, PendingChange> pendingChanges = new ConcurrentHashMap<>();
+	private final Map<Socket, Set<Integer>> pendingSyncIds = new ConcurrentHashMap<>();
+
+	/**
+	 * Runs an operation while holding the lock of an entry.
+	 */
+	public <T> T withEntryLock(Entry<?> entry, Supplier<T> op) {
+		return Utils.withLock(locks.get(entry), op);
+	}
+
+	public boolean canModify(Socket client, Entry<?> entry) {
+		Integer syncId = syncIds.get(entry);
+		if (syncId == null) {
+			return true;
+		}
+
+		PendingChange change = pendingChanges.get(syncId);
+		return change == null || !change.clients.contains(client);
+	}
+
+	/**
+	 * Locks entries with a single new sync id, which the given clients have to
+	 * confirm before they may modify the entries again.
+	 *
+	 * @param entries the changed entries
+	 * @param clients the clients which have to confirm the change
+	 * @return the sync id
+	 */
+	public int lock(Collection<Entry<?>> entries, Collection<Socket> clients) {
+		int syncId = nextSyncId();
+		PendingChange change = new PendingChange(ConcurrentHashMap.newKeySet(), ConcurrentHashMap.newKeySet());
+		change.entries.addAll(entries);
+		change.clients.addAll(clients);
+		pendingChanges.put(syncId, change);
+		for (Socket client : clients) {
+			pendingSyncIds.computeIfAbsent(client, c -> new ConcurrentSkipListSet<>(Integer::compareUnsigned)).add(syncId);
+		}
+
+		assign(syncId, entries);
+
+		if (clients.isEmpty()) {
+			release(syncId);
+		}
+
+		return syncId;
+	}
+
+	/**
+	 * Adds entries to the change with the given sync id, so that they're
+	 * locked until the same clients confirmed it.
+	 *
+	 * @return whether the entries were added, which fails if every client
+	 *         already confirmed the change
+	 */
+	public boolean extend(int syncId, Collection<Entry<?>> entries) {
+		PendingChange change = pendingChanges.get(syncId);
+		if (change == null) {
+			return false;
+		}
+
+		change.entries.addAll(entries);
+		assign(syncId, entries);
+		return true;
+	}
+
+	private void assign(int syncId, Collection<Entry<?>> entries) {
+		// bulkGet returns the stripes in a fixed order, so that locking many entries can't deadlock
+		Iterable<Lock> entryLocks = locks.bulkGet(entries);
+		entryLocks.forEach(Lock::lock);
+		try {
+			for (Entry<?> entry : entries) {
+				Integer oldSyncId = syncIds.put(entry, syncId);
+				if (oldSyncId != null && oldSyncId != syncId) {
+					PendingChange oldChange = pendingChanges.get(oldSyncId);
+					if (oldChange != null) {
+						oldChange.entries.remove(entry);
+						if (oldChange.entries.isEmpty()) {
+							release(oldSyncId);
+						}
+					}
+				}
+			}
+		} finally {
+			entryLocks.forEach(Lock::unlock);
+		}
+	}
+
+	private int nextSyncId() {
+		int syncId;
+		do {
+			syncId = nextSyncId.incrementAndGet();
+		} while ((syncId & WIRE_SYNC_ID_MASK) == EnigmaServer.DUMMY_SYNC_ID);
+		return syncId;
+	}
+
+	/**
+	 * Finds the sync id a client confirmed. Clients only know the low 16 bits
+	 * of a sync id, which are matched against the oldest sync id the client
+	 * has to confirm, so ids only collide if a client falls 65536 changes
+	 * behind.
+	 *
+	 * @param client the client
+	 * @param wireId the sync id as sent by the client
+	 * @return the sync id, or {@code null} if the client has no matching change
+	 *         to confirm
+	 */
+	@Nullable
+	public Integer resolveSyncId(Socket client, int wireId) {
+		Set<Integer> clientSyncIds = pendingSyncIds.get(client);
+		if (clientSyncIds != null) {
+			for (Integer syncId : clientSyncIds) {
+				if ((syncId & WIRE_SYNC_ID_MASK) == wireId) {
+					return syncId;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Gets the number of changes a client has yet to confirm.
+	 */
+	public int getPendingCount(Socket client) {
+		Set<Integer> clientSyncIds = pendingSyncIds.get(client);
+		return clientSyncIds != null ? clientSyncIds.size() : 0;
+	}
+
+	public void confirm(Socket client, int syncId) {
+		Set<Integer> clientSyncIds = pendingSyncIds.get(client);
+		if (clientSyncIds != null) {
+			clientSyncIds.remove(syncId);
+		}
+
+		PendingChange change = pendingChanges.get(syncId);
+		if (change != null && change.clients.remove(client) && change.clients.isEmpty()) {
+			release(syncId);
+		}
+	}
+
+	/**
+	 * Confirms every change for a client which disconnected.
+	 */
+	public void removeClient(Socket client) {
+		Set<Integer> clientSyncIds = pendingSyncIds.remove(client);
+		if (clientSyncIds != null) {
+			for (int syncId : clientSyncIds) {
+				confirm(client, syncId);
+			}
+		}
+	}
+
+	private void release(int syncId) {
+		PendingChange change = pendingChanges.remove(syncId);
+		if (change == null) {
+			return;
+		}
+
+		for (Socket client : change.clients) {
+			Set<Integer> clientSyncIds = pendingSyncIds.get(client);
+			if (clientSyncIds != null) {
+				clientSyncIds.remove(syncId);
+			}
+		}
+
+		for (Entry<?> entry : change.entries) {
+			syncIds.remove(entry, syncId);
+		}
+	}
+
+	private record PendingChange(Set<Entry<?>> entries, Set<Socket> clients) {
+	}
+}
@@ -0,0 +1,97 @@
+package cuchaz.enigma.network;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.gson.JsonObject;
+
+/**
+ * A thread safe histogram of durations, with fixed buckets from 100 microseconds to 10 seconds.
+ */
+public class LatencyHistogram {
+	private static final long[] BUCKET_BOUNDS_MICROS = {
+			100, 250, 500,
+			1_000, 2_500, 5_000,
+			10_000, 25_000, 50_000,
+			100_000, 250_000, 500_000,
+			1_000_000, 2_500_000, 5_000_000,
+			10_000_000
+	};
+
+	private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MICROS.length + 1];
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+	public LatencyHistogram() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public void record(long nanos) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+		int bucket = 0;
+		while (bucket < BUCKET_BOUNDS_MICROS.length && micros > BUCKET_BOUNDS_MICROS[bucket]) {
+			bucket++;
+		}
+
+		buckets[bucket].increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	/**
+	 * Records the time passed since the given {@link System#nanoTime()}.
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	public JsonObject toJson() {
+		long[] counts = new long[buckets.length];
+		long count = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			counts[i] = buckets[i].sum();
+			count += counts[i];
+		}
+
+		JsonObject json = new JsonObject();
+		json.addProperty("count", count);
+		json.addProperty("meanMillis", count == 0 ? 0 : toMillis(totalNanos.sum() / (double) count));
+		json.addProperty("maxMillis", toMillis(maxNanos.get()));
+		json.addProperty("p50Millis", percentile(counts, count, 0.5));
+		json.addProperty("p99Millis", percentile(counts, count, 0.99));
+
+		JsonObject bucketsJson = new JsonObject();
+		for (int i = 0; i < counts.length; i++) {
+			bucketsJson.addProperty(i < BUCKET_BOUNDS_MICROS.length ? "<=" + BUCKET_BOUNDS_MICROS[i] / 1000.0 + "ms" : ">" + BUCKET_BOUNDS_MICROS[i - 1] / 1000.0 + "ms", counts[i]);
+		}
+		json.add("buckets", bucketsJson);
+		return json;
+	}
+
+	/**
+	 * Estimates a percentile by the upper bound of the bucket it falls into.
+	 */
+	private double percentile(long[] counts, long count, double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(count * percentile);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return BUCKET_BOUNDS_MICROS[i] / 1000.0;
+			}
+		}
+
+		return toMillis(maxNanos.get());
+	}
+
+	private static double toMillis(double nanos) {
+		return nanos / 1_000_000.0;
+	}
+}
@@ -0,0 +1,11 @@
+package cuchaz.enigma.network;
+
+/**
+ * A position in the change log of a server, used by clients to resume from
+ * the mappings they already have when reconnecting.
+ *
+ * @param logId   the id of the change log, which differs between server runs
+ * @param version the number of changes which were logged up to this position
+ */
+public record MappingsVersion(long logId, long version) {
+}
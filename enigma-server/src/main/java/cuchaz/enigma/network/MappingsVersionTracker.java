@@ -0,0 +1,59 @@
+package cuchaz.enigma.network;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tracks the version of the mappings a client received from the server, to
+ * resume from when reconnecting. The client can only resume if the server
+ * has every change the client made, otherwise the mappings of the client
+ * differ from the mappings of that version in ways a resync doesn't fix.
+ * So the version is dropped if the client disconnects with changes it
+ * didn't send, or sent without the server acknowledging them.
+ */
+public class MappingsVersionTracker {
+	private MappingsVersion version;
+	private int unacknowledgedPackets;
+
+	@Nullable
+	public MappingsVersion getVersion() {
+		return version;
+	}
+
+	public void setVersion(MappingsVersion version) {
+		this.version = version;
+	}
+
+	/**
+	 * Drops the version, after the mappings changed without the server.
+	 */
+	public void reset() {
+		version = null;
+		unacknowledgedPackets = 0;
+	}
+
+	/**
+	 * Counts a change packet sent to the server, which it has to acknowledge.
+	 */
+	public void changePacketSent() {
+		unacknowledgedPackets++;
+	}
+
+	public void changePacketAcknowledged() {
+		if (unacknowledgedPackets > 0) {
+			unacknowledgedPackets--;
+		}
+	}
+
+	/**
+	 * Drops the version if the server may lack changes of the client.
+	 *
+	 * @param unsentChanges whether the client has changes it didn't send yet
+	 */
+	public void disconnected(boolean unsentChanges) {
+		if (unsentChanges || unacknowledgedPackets > 0) {
+			version = null;
+		}
+
+		unacknowledgedPackets = 0;
+	}
+}
@@ -25,6 +25,10 @@ public abstract class Message {
 		return new Disconnect(user);
 	}
 
+	public static EditBatch editBatch(String user, int count) {
+		return new EditBatch(user, count);
+	}
+
 	public static EditDocs editDocs(String user, Entry<?> entry) {
 		return new EditDocs(user, entry);
 	}
@@ -73,6 +77,9 @@ public abstract class Message {
 				entry = PacketHelper.readEntry(input);
 				String newName = input.readUTF();
 				return rename(user, entry, newName);
+			case EDIT_BATCH:
+				int count = input.readInt();
+				return editBatch(user, count);
 			default:
 				throw new IllegalStateException("unreachable");
 		}
@@ -108,6 +115,7 @@ public abstract class Message {
 		MARK_DEOBF,
 		REMOVE_MAPPING,
 		RENAME,
+		EDIT_BATCH,
 	}
 
 	public static final class Chat extends Message {
@@ -202,6 +210,52 @@ public abstract class Message {
 
 	}
 
+	public static final class EditBatch extends Message {
+
+		public final int count;
+
+		private EditBatch(String user, int count) {
+			super(user);
+			this.count = count;
+		}
+
+		@Override
+		public void write(DataOutput output) throws IOException {
+			super.write(output);
+			output.writeInt(count);
+		}
+
+		@Override
+		public String translate() {
+			return String.format(I18n.translate("message.edit_batch.text"), user, count);
+		}
+
+		@Override
+		public Type getType() {
+			return Type.EDIT_BATCH;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			if (!super.equals(o)) return false;
+			EditBatch editBatch = (EditBatch) o;
+			return count == editBatch.count;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(super.hashCode(), count);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Message.EditBatch { user: '%s', count: %d }", user, count);
+		}
+
+	}
+
 	public static  final class EditDocs extends Message {
 
 		public final Entry<?> entry;
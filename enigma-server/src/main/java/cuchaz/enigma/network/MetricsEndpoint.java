@@ -0,0 +1,56 @@
+package cuchaz.enigma.network;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A small HTTP endpoint serving the {@link ServerMetrics} of a server as JSON
+ * on {@code /metrics}. It only listens on the loopback address, so that the
+ * metrics can't be read from other machines.
+ */
+public class MetricsEndpoint {
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+	private final ServerMetrics metrics;
+	private HttpServer server;
+
+	public MetricsEndpoint(ServerMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public void start(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics", this::handle);
+		server.start();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			byte[] response = GSON.toJson(metrics.toJson()).getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+			exchange.sendResponseHeaders(200, response.length);
+			try (OutputStream output = exchange.getResponseBody()) {
+				output.write(response);
+			}
+		}
+	}
+
+	public void stop() {
+		if (server != null) {
+			server.stop(0);
+		}
+	}
+}
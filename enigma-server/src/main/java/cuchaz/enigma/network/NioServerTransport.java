@@ -0,0 +1,405 @@
+package cuchaz.enigma.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import cuchaz.enigma.network.packet.Packet;
+
+/**
+ * A non-blocking transport, which serves every client from a single selector
+ * thread.
+ *
+ * <p>Sent packets are queued per client and written whenever the client's
+ * socket can take more data, so sending never blocks the sending thread.
+ */
+public class NioServerTransport implements ServerTransport {
+	private static final int INITIAL_READ_BUFFER_SIZE = 8 * 1024;
+	private static final int MAX_READ_BUFFER_SIZE = PacketFraming.MAX_C2S_FRAME_SIZE + Integer.BYTES;
+
+	private final int maxQueuedBytes;
+
+	private final Map<Socket, Connection> connections = new ConcurrentHashMap<>();
+	private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+
+	private Selector selector;
+	private ServerSocketChannel serverChannel;
+	private Listener listener;
+
+	public NioServerTransport() {
+		this(ServerTransport.DEFAULT_MAX_QUEUED_BYTES);
+	}
+
+	/**
+	 * @param maxQueuedBytes the number of bytes which may be queued for a
+	 *                       single client before it is disconnected. A single
+	 *                       packet is always accepted if nothing else is
+	 *                       queued for the client.
+	 */
+	public NioServerTransport(int maxQueuedBytes) {
+		this.maxQueuedBytes = maxQueuedBytes;
+	}
+
+	@Override
+	public void start(int port, Listener listener) throws IOException {
+		this.listener = listener;
+		this.selector = Selector.open();
+		this.serverChannel = ServerSocketChannel.open();
+		this.serverChannel.bind(new InetSocketAddress(port));
+		this.serverChannel.configureBlocking(false);
+		this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+
+		Thread thread = new Thread(this::run);
+		thread.setName("Server selector thread");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void run() {
+		try {
+			while (this.selector.isOpen()) {
+				this.selector.select();
+
+				Runnable task;
+				while ((task = this.pendingTasks.poll()) != null) {
+					task.run();
+				}
+
+				if (!this.selector.isOpen()) {
+					break;
+				}
+
+				Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+
+					if (!key.isValid()) {
+						continue;
+					}
+
+					if (key.isAcceptable()) {
+						this.accept();
+					} else {
+						Connection connection = (Connection) key.attachment();
+
+						try {
+							if (key.isReadable()) {
+								connection.read();
+							}
+
+							if (key.isValid() && key.isWritable()) {
+								connection.flush();
+							}
+						} catch (IOException e) {
+							connection.close(e);
+						} catch (RuntimeException e) {
+							// a malformed packet must only drop its client, not the selector thread
+							connection.close(new IOException("Failed to handle client", e));
+						}
+					}
+				}
+			}
+		} catch (ClosedSelectorException e) {
+			System.out.println("Server closed");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = this.serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+
+		channel.configureBlocking(false);
+		Connection connection = new Connection(channel);
+		connection.key = channel.register(this.selector, SelectionKey.OP_READ, connection);
+		this.connections.put(channel.socket(), connection);
+		this.listener.onConnect(channel.socket());
+	}
+
+	private void runOnSelector(Runnable task) {
+		this.pendingTasks.add(task);
+		this.selector.wakeup();
+	}
+
+	@Override
+	public void send(Socket client, byte[] packet) throws IOException {
+		Connection connection = this.connections.get(client);
+		if (connection == null) {
+			return;
+		}
+
+		connection.enqueue(packet);
+		this.runOnSelector(connection::enableWrite);
+	}
+
+	@Override
+	public int getQueuedBytes(Socket client) {
+		Connection connection = this.connections.get(client);
+		return connection != null ? connection.getQueuedBytes() : 0;
+	}
+
+	@Override
+	public void disconnect(Socket client) {
+		Connection connection = this.connections.get(client);
+		if (connection == null) {
+			return;
+		}
+
+		this.runOnSelector(() -> {
+			connection.closing = true;
+			try {
+				connection.flush();
+			} catch (IOException e) {
+				connection.close(e);
+			}
+		});
+	}
+
+	@Override
+	public void stop() {
+		if (this.selector == null || !this.selector.isOpen()) {
+			return;
+		}
+
+		this.runOnSelector(() -> {
+			for (Connection connection : this.connections.values()) {
+				connection.close(null);
+			}
+
+			try {
+				this.serverChannel.close();
+				this.selector.close();
+			} catch (IOException e) {
+				System.err.println("Failed to close server socket");
+				e.printStackTrace();
+			}
+		});
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.serverChannel != null && this.serverChannel.isOpen();
+	}
+
+	@Override
+	public String getAddress() {
+		return String.valueOf(this.serverChannel.socket().getInetAddress());
+	}
+
+	private final class Connection {
+		private final SocketChannel channel;
+		private SelectionKey key;
+
+		private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+
+		private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+		private int queuedBytes;
+
+		// only accessed by the selector thread
+		private boolean framed;
+
+		private boolean sendFramed;
+		private boolean closing;
+		private boolean closed;
+		private boolean dropped;
+
+		private Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		private void read() throws IOException {
+			if (!this.readBuffer.hasRemaining()) {
+				this.growReadBuffer(this.readBuffer.capacity() * 2);
+			}
+
+			int read = this.channel.read(this.readBuffer);
+			if (read < 0) {
+				this.close(null);
+				return;
+			}
+
+			this.readBuffer.flip();
+			while (this.readBuffer.hasRemaining()) {
+				int start = this.readBuffer.position();
+				Packet<ServerPacketHandler> packet = this.framed ? this.readFramedPacket() : this.readPacket();
+				if (packet == null) {
+					break;
+				}
+
+				if (PacketFraming.startsFraming(packet)) {
+					this.startFraming();
+				}
+
+				NioServerTransport.this.listener.onPacket(this.channel.socket(), packet, this.readBuffer.position() - start);
+			}
+			this.readBuffer.compact();
+		}
+
+		private void growReadBuffer(int capacity) throws IOException {
+			if (capacity > MAX_READ_BUFFER_SIZE) {
+				throw new IOException("Packet exceeds " + PacketFraming.MAX_C2S_FRAME_SIZE + " bytes");
+			}
+
+			ByteBuffer grown = ByteBuffer.allocate(capacity);
+			this.readBuffer.flip();
+			grown.put(this.readBuffer);
+			this.readBuffer = grown;
+		}
+
+		/**
+		 * Tries to read one unframed packet from the read buffer. Unframed
+		 * packets are not length-prefixed, so a packet is complete once it
+		 * could be read without running out of data.
+		 */
+		private Packet<ServerPacketHandler> readPacket() throws IOException {
+			int available = this.readBuffer.remaining();
+			DataInputStream input = new DataInputStream(new ByteArrayInputStream(this.readBuffer.array(), this.readBuffer.arrayOffset() + this.readBuffer.position(), available));
+
+			Packet<ServerPacketHandler> packet;
+			try {
+				packet = PacketFraming.readC2SPacket(input);
+			} catch (EOFException e) {
+				return null;
+			}
+
+			this.readBuffer.position(this.readBuffer.position() + available - input.available());
+			return packet;
+		}
+
+		private Packet<ServerPacketHandler> readFramedPacket() throws IOException {
+			if (this.readBuffer.remaining() < Integer.BYTES) {
+				return null;
+			}
+
+			int length = this.readBuffer.getInt(this.readBuffer.position());
+			PacketFraming.checkFrameLength(length, PacketFraming.MAX_C2S_FRAME_SIZE);
+
+			if (this.readBuffer.remaining() < Integer.BYTES + length) {
+				if (this.readBuffer.capacity() < Integer.BYTES + length) {
+					// make room for the whole frame, the buffer is compacted afterwards
+					this.readBuffer.compact();
+					this.growReadBuffer(Integer.BYTES + length);
+					this.readBuffer.flip();
+				}
+
+				return null;
+			}
+
+			int start = this.readBuffer.position() + Integer.BYTES;
+			this.readBuffer.position(start + length);
+			return PacketFraming.readC2SPacket(PacketFraming.frameInput(this.readBuffer.array(), this.readBuffer.arrayOffset() + start, length));
+		}
+
+		private synchronized void startFraming() {
+			this.framed = true;
+
+			if (!this.closed) {
+				this.writeQueue.add(ByteBuffer.wrap(new byte[] {(byte) PacketFraming.START_FRAMING_ID}));
+				this.queuedBytes++;
+				this.sendFramed = true;
+				this.enableWrite();
+			}
+		}
+
+		private synchronized void enqueue(byte[] packet) throws IOException {
+			if (this.closed || this.dropped) {
+				throw new IOException("Connection closed");
+			}
+
+			if (!this.writeQueue.isEmpty() && this.queuedBytes + packet.length > NioServerTransport.this.maxQueuedBytes) {
+				// drop the client right away, flushing its queue could take forever
+				IOException error = new IOException("Client is not keeping up, " + this.queuedBytes + " bytes queued");
+				this.dropped = true;
+				this.writeQueue.clear();
+				this.queuedBytes = 0;
+				NioServerTransport.this.runOnSelector(() -> this.close(error));
+				throw error;
+			}
+
+			if (this.sendFramed) {
+				this.writeQueue.add(ByteBuffer.allocate(Integer.BYTES).putInt(0, packet.length));
+				this.queuedBytes += Integer.BYTES;
+			}
+
+			this.writeQueue.add(ByteBuffer.wrap(packet));
+			this.queuedBytes += packet.length;
+		}
+
+		private synchronized int getQueuedBytes() {
+			return this.queuedBytes;
+		}
+
+		private void enableWrite() {
+			if (this.key.isValid()) {
+				this.key.interestOps(this.key.interestOps() | SelectionKey.OP_WRITE);
+			}
+		}
+
+		private void flush() throws IOException {
+			boolean empty;
+
+			synchronized (this) {
+				while (!this.writeQueue.isEmpty()) {
+					ByteBuffer buffer = this.writeQueue.peek();
+					int written = this.channel.write(buffer);
+					this.queuedBytes -= written;
+
+					if (buffer.hasRemaining()) {
+						break;
+					}
+
+					this.writeQueue.poll();
+				}
+
+				empty = this.writeQueue.isEmpty();
+			}
+
+			if (empty) {
+				if (this.closing) {
+					this.close(null);
+				} else if (this.key.isValid()) {
+					this.key.interestOps(SelectionKey.OP_READ);
+				}
+			}
+		}
+
+		private void close(IOException error) {
+			synchronized (this) {
+				if (this.closed) {
+					return;
+				}
+
+				this.closed = true;
+				this.writeQueue.clear();
+			}
+
+			Socket socket = this.channel.socket();
+			NioServerTransport.this.connections.remove(socket);
+			this.key.cancel();
+
+			try {
+				this.channel.close();
+			} catch (IOException e) {
+				System.err.println("Failed to close server client socket");
+				e.printStackTrace();
+			}
+
+			NioServerTransport.this.listener.onDisconnect(socket, error);
+		}
+	}
+}
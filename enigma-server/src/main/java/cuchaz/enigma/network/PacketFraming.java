@@ -0,0 +1,81 @@
+package cuchaz.enigma.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import cuchaz.enigma.network.packet.LoginC2SPacket;
+import cuchaz.enigma.network.packet.Packet;
+import cuchaz.enigma.network.packet.PacketRegistry;
+
+/**
+ * Helpers for the packet framing used since {@link #FRAMED_PROTOCOL_VERSION}.
+ *
+ * <p>Every connection starts out unframed, where a packet is its id followed
+ * by its data. A client speaking a framed protocol version switches to framed
+ * packets right after its login packet. The server follows once it read the
+ * login packet, by sending {@link #START_FRAMING_ID} in place of a packet id.
+ * A framed packet is prefixed with its length as an int, so that it can be
+ * read with a single bulk read.
+ */
+public final class PacketFraming {
+	public static final int FRAMED_PROTOCOL_VERSION = 2;
+	public static final int START_FRAMING_ID = 255;
+	public static final int MAX_C2S_FRAME_SIZE = 1024 * 1024;
+
+	private PacketFraming() {
+	}
+
+	/**
+	 * Checks whether a client switches to framed packets after sending the
+	 * given packet.
+	 */
+	public static boolean startsFraming(Packet<ServerPacketHandler> packet) {
+		return packet instanceof LoginC2SPacket login && login.getProtocolVersion() >= FRAMED_PROTOCOL_VERSION;
+	}
+
+	/**
+	 * Reads the length of the next frame.
+	 *
+	 * @param input   the input to read from
+	 * @param maxSize the maximum accepted frame size
+	 * @return the frame length
+	 * @throws IOException if the frame length is out of bounds
+	 */
+	public static int readFrameLength(DataInput input, int maxSize) throws IOException {
+		int length = input.readInt();
+		checkFrameLength(length, maxSize);
+		return length;
+	}
+
+	public static void checkFrameLength(int length, int maxSize) throws IOException {
+		if (length <= 0 || length > maxSize) {
+			throw new IOException("Invalid frame length " + length);
+		}
+	}
+
+	public static DataInput frameInput(byte[] frame, int offset, int length) {
+		return new DataInputStream(new ByteArrayInputStream(frame, offset, length));
+	}
+
+	public static Packet<ServerPacketHandler> readC2SPacket(DataInput input) throws IOException {
+		int packetId = input.readUnsignedByte();
+		Packet<ServerPacketHandler> packet = PacketRegistry.createC2SPacket(packetId);
+		if (packet == null) {
+			throw new IOException("Received invalid packet id " + packetId);
+		}
+		packet.read(input);
+		return packet;
+	}
+
+	public static Packet<ClientPacketHandler> readS2CPacket(DataInput input) throws IOException {
+		int packetId = input.readUnsignedByte();
+		Packet<ClientPacketHandler> packet = PacketRegistry.createS2CPacket(packetId);
+		if (packet == null) {
+			throw new IOException("Received invalid packet id " + packetId);
+		}
+		packet.read(input);
+		return packet;
+	}
+}
@@ -0,0 +1,149 @@
+package cuchaz.enigma.network;
+
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+import com.google.gson.JsonObject;
+
+import cuchaz.enigma.network.packet.Packet;
+
+/**
+ * Counters and histograms describing the load of a server, to plan its
+ * capacity and to spot slow clients. All methods are thread safe.
+ */
+public class ServerMetrics {
+	private final long startTime = System.currentTimeMillis();
+	private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+	private final Map<String, ToLongFunction<Socket>> clientGauges = new ConcurrentSkipListMap<>();
+	private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+	private final Traffic traffic = new Traffic();
+	private final Map<Socket, ClientMetrics> clients = new ConcurrentHashMap<>();
+
+	/**
+	 * Registers a value which is read whenever the metrics are reported.
+	 */
+	public void registerGauge(String name, LongSupplier gauge) {
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * Registers a value which is read for every client whenever the metrics
+	 * are reported.
+	 */
+	public void registerClientGauge(String name, ToLongFunction<Socket> gauge) {
+		clientGauges.put(name, gauge);
+	}
+
+	public LatencyHistogram getHistogram(String name) {
+		return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+	}
+
+	public void clientConnected(Socket client) {
+		clients.put(client, new ClientMetrics());
+	}
+
+	public void clientDisconnected(Socket client) {
+		clients.remove(client);
+	}
+
+	public void setClientName(Socket client, String name) {
+		ClientMetrics metrics = clients.get(client);
+		if (metrics != null) {
+			metrics.name = name;
+		}
+	}
+
+	/**
+	 * @param bytes the size of the packet on the wire
+	 */
+	public void packetReceived(Socket client, Packet<?> packet, int bytes) {
+		traffic.received(packet, bytes);
+		ClientMetrics metrics = clients.get(client);
+		if (metrics != null) {
+			metrics.traffic.received(packet, bytes);
+		}
+	}
+
+	/**
+	 * @param bytes the size of the encoded packet
+	 */
+	public void packetSent(Socket client, Packet<?> packet, int bytes) {
+		traffic.sent(packet, bytes);
+		ClientMetrics metrics = clients.get(client);
+		if (metrics != null) {
+			metrics.traffic.sent(packet, bytes);
+		}
+	}
+
+	public JsonObject toJson() {
+		JsonObject json = new JsonObject();
+		json.addProperty("uptimeSeconds", (System.currentTimeMillis() - startTime) / 1000);
+
+		for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+			json.addProperty(gauge.getKey(), gauge.getValue().getAsLong());
+		}
+
+		traffic.addTo(json);
+
+		JsonObject histogramsJson = new JsonObject();
+		for (Map.Entry<String, LatencyHistogram> histogram : histograms.entrySet()) {
+			histogramsJson.add(histogram.getKey(), histogram.getValue().toJson());
+		}
+		json.add("histograms", histogramsJson);
+
+		JsonObject clientsJson = new JsonObject();
+		for (Map.Entry<Socket, ClientMetrics> client : clients.entrySet()) {
+			JsonObject clientJson = new JsonObject();
+			clientJson.addProperty("name", client.getValue().name);
+			for (Map.Entry<String, ToLongFunction<Socket>> gauge : clientGauges.entrySet()) {
+				clientJson.addProperty(gauge.getKey(), gauge.getValue().applyAsLong(client.getKey()));
+			}
+			client.getValue().traffic.addTo(clientJson);
+			clientsJson.add(String.valueOf(client.getKey().getRemoteSocketAddress()), clientJson);
+		}
+		json.add("clients", clientsJson);
+		return json;
+	}
+
+	private static final class ClientMetrics {
+		private final Traffic traffic = new Traffic();
+		private volatile String name;
+	}
+
+	private static final class Traffic {
+		private final LongAdder bytesReceived = new LongAdder();
+		private final LongAdder bytesSent = new LongAdder();
+		private final Map<String, LongAdder> packetsReceived = new ConcurrentSkipListMap<>();
+		private final Map<String, LongAdder> packetsSent = new ConcurrentSkipListMap<>();
+
+		private void received(Packet<?> packet, int bytes) {
+			bytesReceived.add(bytes);
+			packetsReceived.computeIfAbsent(packet.getClass().getSimpleName(), type -> new LongAdder()).increment();
+		}
+
+		private void sent(Packet<?> packet, int bytes) {
+			bytesSent.add(bytes);
+			packetsSent.computeIfAbsent(packet.getClass().getSimpleName(), type -> new LongAdder()).increment();
+		}
+
+		private void addTo(JsonObject json) {
+			json.addProperty("bytesReceived", bytesReceived.sum());
+			json.addProperty("bytesSent", bytesSent.sum());
+			json.add("packetsReceived", toJson(packetsReceived));
+			json.add("packetsSent", toJson(packetsSent));
+		}
+
+		private static JsonObject toJson(Map<String, LongAdder> counters) {
+			JsonObject json = new JsonObject();
+			for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+				json.addProperty(counter.getKey(), counter.getValue().sum());
+			}
+			return json;
+		}
+	}
+}
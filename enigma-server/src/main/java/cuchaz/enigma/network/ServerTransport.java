@@ -0,0 +1,89 @@
+package cuchaz.enigma.network;
+
+import java.io.IOException;
+import java.net.Socket;
+
+import javax.annotation.Nullable;
+
+import cuchaz.enigma.network.packet.Packet;
+
+/**
+ * Moves packets between an {@link EnigmaServer} and its clients. Clients are
+ * identified by their {@link Socket}, which must stay the same object for the
+ * whole lifetime of the connection.
+ */
+public interface ServerTransport {
+	/**
+	 * The number of bytes which may be queued for a single client before it
+	 * is considered too slow and dropped.
+	 */
+	int DEFAULT_MAX_QUEUED_BYTES = Integer.getInteger("enigma.server.maxQueuedBytes", 16 * 1024 * 1024);
+
+	/**
+	 * Starts listening for clients on the given port.
+	 *
+	 * @param port     the port to listen on
+	 * @param listener the listener to notify about connections and packets
+	 */
+	void start(int port, Listener listener) throws IOException;
+
+	/**
+	 * Queues an encoded packet, consisting of the packet id followed by the
+	 * packet data, to be sent to a client. The transport takes care of the
+	 * framing negotiated with the client, see {@link PacketFraming}. Sending
+	 * never waits for the client, so that a slow client can't hold up the
+	 * sending thread. A client whose queue exceeds its limit is dropped right
+	 * away, without sending the queued packets.
+	 *
+	 * @param client the client to send to
+	 * @param packet the encoded packet, which must not be modified afterwards,
+	 *               as the same packet may be queued for many clients
+	 * @throws IOException if the connection is closed, or the client was
+	 *                     dropped for not keeping up
+	 */
+	void send(Socket client, byte[] packet) throws IOException;
+
+	/**
+	 * Gets the number of bytes queued to be sent to a client.
+	 */
+	int getQueuedBytes(Socket client);
+
+	/**
+	 * Closes the connection to a client once all packets queued for it have
+	 * been sent.
+	 *
+	 * @param client the client to disconnect
+	 */
+	void disconnect(Socket client);
+
+	/**
+	 * Stops listening for clients and closes all remaining connections.
+	 */
+	void stop();
+
+	boolean isRunning();
+
+	String getAddress();
+
+	interface Listener {
+		void onConnect(Socket client);
+
+		/**
+		 * Called on a transport thread for every packet read from a client.
+		 *
+		 * @param client the client
+		 * @param packet the packet
+		 * @param size   the number of bytes the packet took on the wire
+		 */
+		void onPacket(Socket client, Packet<ServerPacketHandler> packet, int size);
+
+		/**
+		 * Called once a client connection ended.
+		 *
+		 * @param client the client
+		 * @param error  the error which ended the connection, or {@code null}
+		 *               if the client disconnected
+		 */
+		void onDisconnect(Socket client, @Nullable IOException error);
+	}
+}
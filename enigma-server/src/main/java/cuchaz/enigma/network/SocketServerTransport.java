@@ -0,0 +1,273 @@
+package cuchaz.enigma.network;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.io.CountingInputStream;
+
+import cuchaz.enigma.network.packet.Packet;
+
+/**
+ * The blocking transport, which uses one reading and one writing thread per
+ * connected client. Sent packets are queued for the writing thread, so a
+ * client which doesn't read its socket only blocks its own writer.
+ */
+public class SocketServerTransport implements ServerTransport {
+
+	private static int nextIoId = 0;
+
+	private final int maxQueuedBytes;
+	private ServerSocket socket;
+	private final Map<Socket, Connection> connections = new ConcurrentHashMap<>();
+
+	public SocketServerTransport() {
+		this(ServerTransport.DEFAULT_MAX_QUEUED_BYTES);
+	}
+
+	/**
+	 * @param maxQueuedBytes the number of bytes which may be queued for a
+	 *                       client before it is disconnected
+	 */
+	public SocketServerTransport(int maxQueuedBytes) {
+		this.maxQueuedBytes = maxQueuedBytes;
+	}
+
+	@Override
+	public void start(int port, Listener listener) throws IOException {
+		socket = new ServerSocket(port);
+		Thread thread = new Thread(() -> {
+			try {
+				while (!socket.isClosed()) {
+					acceptClient(listener);
+				}
+			} catch (SocketException e) {
+				System.out.println("Server closed");
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+		thread.setName("Server client listener");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void acceptClient(Listener listener) throws IOException {
+		Socket client = socket.accept();
+		int id = nextIoId++;
+		Connection connection = new Connection(client, maxQueuedBytes);
+		connections.put(client, connection);
+		listener.onConnect(client);
+		connection.startWriter(id);
+		Thread thread = new Thread(() -> {
+			try {
+				CountingInputStream counter = new CountingInputStream(new BufferedInputStream(client.getInputStream()));
+				DataInputStream input = new DataInputStream(counter);
+				byte[] frame = new byte[0];
+				while (true) {
+					Packet<ServerPacketHandler> packet;
+					long start = counter.getCount();
+					try {
+						if (connection.framed) {
+							int length = PacketFraming.readFrameLength(input, PacketFraming.MAX_C2S_FRAME_SIZE);
+							if (frame.length < length) {
+								frame = new byte[length];
+							}
+							input.readFully(frame, 0, length);
+							packet = PacketFraming.readC2SPacket(PacketFraming.frameInput(frame, 0, length));
+						} else {
+							packet = PacketFraming.readC2SPacket(input);
+						}
+					} catch (EOFException | SocketException e) {
+						break;
+					}
+					if (PacketFraming.startsFraming(packet)) {
+						connection.startFraming();
+					}
+					listener.onPacket(client, packet, (int) (counter.getCount() - start));
+				}
+			} catch (IOException e) {
+				connections.remove(client);
+				connection.closeWhenSent();
+				listener.onDisconnect(client, e);
+				return;
+			}
+			connections.remove(client);
+			connection.closeWhenSent();
+			listener.onDisconnect(client, null);
+		});
+		thread.setName("Server I/O thread #" + id);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void send(Socket client, byte[] packet) throws IOException {
+		Connection connection = connections.get(client);
+		if (connection != null && !client.isClosed()) {
+			connection.send(packet);
+		}
+	}
+
+	@Override
+	public int getQueuedBytes(Socket client) {
+		Connection connection = connections.get(client);
+		return connection != null ? connection.getQueuedBytes() : 0;
+	}
+
+	@Override
+	public void disconnect(Socket client) {
+		Connection connection = connections.remove(client);
+		if (connection != null) {
+			connection.closeWhenSent();
+		} else {
+			closeSocket(client);
+		}
+	}
+
+	private static void closeSocket(Socket client) {
+		try {
+			client.close();
+		} catch (IOException e) {
+			System.err.println("Failed to close server client socket");
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void stop() {
+		if (socket != null && !socket.isClosed()) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				System.err.println("Failed to close server socket");
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return socket != null && !socket.isClosed();
+	}
+
+	@Override
+	public String getAddress() {
+		return String.valueOf(socket.getInetAddress());
+	}
+
+	private static final class Connection {
+		private final Socket socket;
+		private final DataOutputStream output;
+		private final int maxQueuedBytes;
+		// only accessed by the I/O thread of the connection
+		private boolean framed;
+		// guarded by this
+		private final ArrayDeque<Write> writeQueue = new ArrayDeque<>();
+		private int queuedBytes;
+		private boolean sendFramed;
+		private boolean closing;
+
+		private Connection(Socket socket, int maxQueuedBytes) throws IOException {
+			this.socket = socket;
+			this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			this.maxQueuedBytes = maxQueuedBytes;
+		}
+
+		private void startWriter(int id) {
+			Thread thread = new Thread(this::runWriter);
+			thread.setName("Server writer thread #" + id);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		private synchronized void startFraming() throws IOException {
+			framed = true;
+			// the marker is raw, but every packet queued after it is framed
+			enqueue(new Write(new byte[] {(byte) PacketFraming.START_FRAMING_ID}, false));
+			sendFramed = true;
+		}
+
+		private synchronized void send(byte[] packet) throws IOException {
+			enqueue(new Write(packet, sendFramed));
+		}
+
+		private void enqueue(Write write) throws IOException {
+			if (closing || socket.isClosed()) {
+				throw new IOException("Connection closed");
+			}
+
+			if (!writeQueue.isEmpty() && queuedBytes + write.data.length > maxQueuedBytes) {
+				// drop the client right away, flushing its queue could take forever
+				IOException error = new IOException("Client is not keeping up, " + queuedBytes + " bytes queued");
+				writeQueue.clear();
+				queuedBytes = 0;
+				closing = true;
+				closeSocket(socket);
+				throw error;
+			}
+
+			writeQueue.add(write);
+			queuedBytes += write.data.length;
+			notifyAll();
+		}
+
+		private synchronized int getQueuedBytes() {
+			return queuedBytes;
+		}
+
+		private synchronized void closeWhenSent() {
+			closing = true;
+			notifyAll();
+		}
+
+		private void runWriter() {
+			List<Write> batch = new ArrayList<>();
+			try {
+				while (true) {
+					synchronized (this) {
+						while (writeQueue.isEmpty() && !closing) {
+							wait();
+						}
+
+						if (writeQueue.isEmpty()) {
+							break;
+						}
+
+						batch.addAll(writeQueue);
+						writeQueue.clear();
+					}
+
+					// write outside the lock, so that sending threads never wait for the socket
+					int written = 0;
+					for (Write write : batch) {
+						if (write.framed) {
+							output.writeInt(write.data.length);
+						}
+						output.write(write.data);
+						written += write.data.length;
+					}
+					output.flush();
+					batch.clear();
+
+					synchronized (this) {
+						queuedBytes = Math.max(0, queuedBytes - written);
+					}
+				}
+			} catch (IOException | InterruptedException e) {
+				// the socket was closed, the reading thread reports the disconnect
+			}
+
+			closeSocket(socket);
+		}
+
+		private record Write(byte[] data, boolean framed) {
+		}
+	}
+}
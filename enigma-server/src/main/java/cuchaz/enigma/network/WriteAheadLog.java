@@ -0,0 +1,250 @@
+package cuchaz.enigma.network;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import cuchaz.enigma.network.packet.PacketHelper;
+import cuchaz.enigma.translation.mapping.EntryChange;
+
+/**
+ * An append-only log of the changes applied to the mappings of a dedicated
+ * server, so that no change is lost if the server crashes between two saves.
+ *
+ * <p>Appended changes are written and synced to disk by a background thread.
+ * Changes appended while a sync is in progress are written together with the
+ * next sync, so the number of syncs doesn't grow with the number of changes.
+ *
+ * <p>The changes in the log are read back when the log is opened. Once the
+ * mappings were saved, the log is {@linkplain #truncate() truncated}.
+ */
+public class WriteAheadLog implements Closeable {
+	private static final int MAGIC = 0x454E5741; // "ENWA"
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 2 * Integer.BYTES;
+	private static final int MAX_RECORD_SIZE = PacketFraming.MAX_C2S_FRAME_SIZE;
+	private static final long POLL_TIMEOUT_MILLIS = 500;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final List<EntryChange<?>> recoveredChanges;
+	private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+	// incremented whenever the log is truncated, so that changes taken by the
+	// writer before can be told apart
+	private volatile long generation;
+	private Thread writer;
+	private volatile boolean closed;
+
+	/**
+	 * Opens a log, creating it if it doesn't exist. A record which was only
+	 * partially written before a crash is discarded.
+	 *
+	 * @param path the log file
+	 * @throws IOException if the file can't be opened, or isn't a log
+	 */
+	public WriteAheadLog(Path path) throws IOException {
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.recoveredChanges = new ArrayList<>();
+
+		try {
+			if (channel.size() == 0) {
+				writeHeader();
+			} else {
+				recover();
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+		channel.write(header, 0);
+		channel.truncate(HEADER_SIZE);
+		channel.position(HEADER_SIZE);
+		channel.force(true);
+	}
+
+	private void recover() throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(path.toFile())));
+		long validSize = HEADER_SIZE;
+
+		try (input) {
+			if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+				throw new IOException("Not a write-ahead log: " + path);
+			}
+
+			CRC32 crc = new CRC32();
+			while (true) {
+				int length = input.readInt();
+				int checksum = input.readInt();
+				if (length <= 0 || length > MAX_RECORD_SIZE) {
+					break;
+				}
+
+				byte[] record = new byte[length];
+				input.readFully(record);
+				crc.reset();
+				crc.update(record);
+				if ((int) crc.getValue() != checksum) {
+					break;
+				}
+
+				recoveredChanges.add(PacketHelper.readEntryChange(new DataInputStream(new ByteArrayInputStream(record))));
+				validSize += 2 * Integer.BYTES + length;
+			}
+		} catch (EOFException e) {
+			// the last record was not completely written
+		}
+
+		channel.truncate(validSize);
+		channel.position(validSize);
+	}
+
+	/**
+	 * Gets the changes which were in the log when it was opened, in the order
+	 * they were applied.
+	 */
+	public List<EntryChange<?>> getRecoveredChanges() {
+		return recoveredChanges;
+	}
+
+	/**
+	 * Starts the thread writing appended changes.
+	 */
+	public void start() {
+		writer = new Thread(this::run);
+		writer.setName("Server write-ahead log");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Queues a change to be written. Changes have to be appended in the order
+	 * they are applied.
+	 */
+	public void append(EntryChange<?> change) {
+		queue.add(new Pending(change, generation));
+	}
+
+	private void run() {
+		List<Pending> batch = new ArrayList<>();
+		while (!closed) {
+			try {
+				// the writer is never interrupted, as that would close the channel
+				Pending change = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				if (change == null) {
+					continue;
+				}
+				batch.add(change);
+				queue.drainTo(batch);
+			} catch (InterruptedException e) {
+				break;
+			}
+
+			try {
+				commit(batch);
+			} catch (IOException e) {
+				System.err.println("Failed to write to the write-ahead log");
+				e.printStackTrace();
+			}
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Takes all queued changes, to be {@linkplain #commit(List) committed}.
+	 */
+	List<Pending> drainQueue() {
+		List<Pending> batch = new ArrayList<>();
+		queue.drainTo(batch);
+		return batch;
+	}
+
+	/**
+	 * Writes changes taken from the queue and syncs the log. Changes appended
+	 * before the log was last truncated are skipped, as they were saved with
+	 * the mappings, and a newer change to the same entry may have been saved
+	 * and discarded since.
+	 */
+	synchronized void commit(List<Pending> batch) throws IOException {
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		DataOutputStream recordOutput = new DataOutputStream(record);
+		CRC32 crc = new CRC32();
+		for (Pending change : batch) {
+			if (change.generation != generation) {
+				continue;
+			}
+
+			record.reset();
+			PacketHelper.writeEntryChange(recordOutput, change.change);
+			crc.reset();
+			crc.update(record.toByteArray());
+			output.writeInt(record.size());
+			output.writeInt((int) crc.getValue());
+			record.writeTo(output);
+		}
+
+		if (bytes.size() == 0) {
+			return;
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		channel.force(false);
+	}
+
+	/**
+	 * Discards all changes in the log, once they were saved with the mappings.
+	 * No change may be appended while the log is truncated.
+	 */
+	public synchronized void truncate() throws IOException {
+		// changes the writer took before are dropped when it commits them
+		generation++;
+		queue.clear();
+		channel.truncate(HEADER_SIZE);
+		channel.position(HEADER_SIZE);
+		channel.force(false);
+	}
+
+	/**
+	 * Writes all queued changes and closes the log.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		if (writer != null) {
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		synchronized (this) {
+			commit(drainQueue());
+			channel.close();
+		}
+	}
+
+	record Pending(EntryChange<?> change, long generation) {
+	}
+}
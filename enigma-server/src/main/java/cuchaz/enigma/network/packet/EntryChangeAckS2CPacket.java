@@ -0,0 +1,27 @@
+package cuchaz.enigma.network.packet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+
+import cuchaz.enigma.network.ClientPacketHandler;
+
+/**
+ * Tells a client that the server handled one of its change packets, so the
+ * changes in it are in the server mappings, or were corrected on the client.
+ * Only sent to clients supporting
+ * {@link cuchaz.enigma.network.EnigmaServer#CHANGE_ACK_PROTOCOL_VERSION}.
+ */
+public class EntryChangeAckS2CPacket implements Packet<ClientPacketHandler> {
+	@Override
+	public void read(DataInput input) {
+	}
+
+	@Override
+	public void write(DataOutput output) {
+	}
+
+	@Override
+	public void handle(ClientPacketHandler handler) {
+		handler.acknowledgeChangePacket();
+	}
+}
@@ -0,0 +1,104 @@
+package cuchaz.enigma.network.packet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.io.ByteStreams;
+
+import cuchaz.enigma.network.Message;
+import cuchaz.enigma.network.PacketFraming;
+import cuchaz.enigma.network.ServerPacketHandler;
+import cuchaz.enigma.translation.mapping.EntryChange;
+
+/**
+ * Several {@link EntryChangeC2SPacket}s in one, sent to servers supporting
+ * {@link cuchaz.enigma.network.EnigmaServer#BATCH_PROTOCOL_VERSION}.
+ */
+public class EntryChangeBatchC2SPacket implements Packet<ServerPacketHandler> {
+	// the encoded size a batch is kept below, well within the frame size the server accepts
+	public static final int MAX_BATCH_SIZE = PacketFraming.MAX_C2S_FRAME_SIZE / 4;
+
+	private List<EntryChange<?>> changes;
+
+	EntryChangeBatchC2SPacket() {
+	}
+
+	public EntryChangeBatchC2SPacket(List<EntryChange<?>> changes) {
+		this.changes = changes;
+	}
+
+	/**
+	 * Splits changes into batches whose encoded size stays below
+	 * {@link #MAX_BATCH_SIZE}. A change which is larger on its own gets a
+	 * batch of its own.
+	 */
+	public static List<EntryChangeBatchC2SPacket> split(List<EntryChange<?>> changes) {
+		List<EntryChangeBatchC2SPacket> batches = new ArrayList<>();
+		List<EntryChange<?>> batch = new ArrayList<>();
+		DataOutputStream output = new DataOutputStream(ByteStreams.nullOutputStream());
+		int batchSize = 0;
+
+		for (EntryChange<?> change : changes) {
+			int start = output.size();
+			try {
+				PacketHelper.writeEntryChange(output, change);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			int size = output.size() - start;
+
+			if (!batch.isEmpty() && batchSize + size > MAX_BATCH_SIZE) {
+				batches.add(new EntryChangeBatchC2SPacket(batch));
+				batch = new ArrayList<>();
+				batchSize = 0;
+			}
+
+			batch.add(change);
+			batchSize += size;
+		}
+
+		if (!batch.isEmpty()) {
+			batches.add(new EntryChangeBatchC2SPacket(batch));
+		}
+
+		return batches;
+	}
+
+	@Override
+	public void read(DataInput input) throws IOException {
+		this.changes = PacketHelper.readEntryChanges(input);
+	}
+
+	@Override
+	public void write(DataOutput output) throws IOException {
+		PacketHelper.writeEntryChanges(output, this.changes);
+	}
+
+	@Override
+	public void handle(ServerPacketHandler handler) {
+		String username = handler.getServer().getUsername(handler.getClient());
+		List<Message> messages = new ArrayList<>();
+		int applied = 0;
+
+		for (EntryChange<?> change : this.changes) {
+			if (EntryChangeC2SPacket.apply(handler, change)) {
+				EntryChangeC2SPacket.addMessages(messages, username, change);
+				applied++;
+			}
+		}
+
+		if (applied == 1) {
+			handler.getServer().queueMessages(null, messages);
+		} else if (applied > 1) {
+			handler.getServer().queueMessages(Message.editBatch(username, applied), messages);
+		}
+
+		handler.getServer().acknowledgeChangePacket(handler.getClient());
+	}
+
+}
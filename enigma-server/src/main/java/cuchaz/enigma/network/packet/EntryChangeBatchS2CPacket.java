@@ -0,0 +1,53 @@
+package cuchaz.enigma.network.packet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+import cuchaz.enigma.network.ClientPacketHandler;
+import cuchaz.enigma.network.MappingsVersion;
+import cuchaz.enigma.translation.mapping.EntryChange;
+
+/**
+ * Several changes sent as one, which are confirmed together with a single
+ * sync id.
+ */
+public class EntryChangeBatchS2CPacket implements Packet<ClientPacketHandler> {
+
+	private int syncId;
+	private MappingsVersion version;
+	private List<EntryChange<?>> changes;
+
+	public EntryChangeBatchS2CPacket(int syncId, MappingsVersion version, List<EntryChange<?>> changes) {
+		this.syncId = syncId;
+		this.version = version;
+		this.changes = changes;
+	}
+
+	EntryChangeBatchS2CPacket() {
+	}
+
+	@Override
+	public void read(DataInput input) throws IOException {
+		this.syncId = input.readUnsignedShort();
+		this.version = PacketHelper.readMappingsVersion(input);
+		this.changes = PacketHelper.readEntryChanges(input);
+	}
+
+	@Override
+	public void write(DataOutput output) throws IOException {
+		output.writeShort(this.syncId);
+		PacketHelper.writeMappingsVersion(output, this.version);
+		PacketHelper.writeEntryChanges(output, this.changes);
+	}
+
+	@Override
+	public void handle(ClientPacketHandler handler) {
+		if (handler.applyChangesFromServer(this.changes)) {
+			handler.setMappingsVersion(this.version);
+			handler.sendPacket(new ConfirmChangeC2SPacket(this.syncId));
+		}
+	}
+
+}
@@ -3,11 +3,12 @@ package cuchaz.enigma.network.packet;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import cuchaz.enigma.network.Message;
 import cuchaz.enigma.network.ServerPacketHandler;
 import cuchaz.enigma.translation.mapping.EntryChange;
-import cuchaz.enigma.translation.mapping.EntryUtil;
 import cuchaz.enigma.utils.validation.PrintValidatable;
 import cuchaz.enigma.utils.validation.ValidationContext;
 
@@ -34,32 +35,43 @@ public class EntryChangeC2SPacket implements Packet<ServerPacketHandler> {
 
 	@Override
 	public void handle(ServerPacketHandler handler) {
-		ValidationContext vc = new ValidationContext();
-		vc.setActiveElement(PrintValidatable.INSTANCE);
+		if (apply(handler, this.change)) {
+			List<Message> messages = new ArrayList<>();
+			addMessages(messages, handler.getServer().getUsername(handler.getClient()), this.change);
+			handler.getServer().queueMessages(null, messages);
+		}
 
-		boolean valid = handler.getServer().canModifyEntry(handler.getClient(), this.change.getTarget());
+		handler.getServer().acknowledgeChangePacket(handler.getClient());
+	}
 
-		if (valid) {
-			EntryUtil.applyChange(vc, handler.getServer().getMappings(), this.change);
-			valid = vc.canProceed();
-		}
+	/**
+	 * Applies a change from a client to the server mappings, and queues it to
+	 * be sent to the other clients. Changes which can't be applied are
+	 * corrected on the client.
+	 *
+	 * @return whether the change was applied
+	 */
+	static boolean apply(ServerPacketHandler handler, EntryChange<?> change) {
+		ValidationContext vc = new ValidationContext();
+		vc.setActiveElement(PrintValidatable.INSTANCE);
 
-		if (!valid) {
-			handler.getServer().sendCorrectMapping(handler.getClient(), this.change.getTarget(), true);
-			return;
+		if (!handler.getServer().applyChange(handler.getClient(), change, vc)) {
+			handler.getServer().sendCorrectMapping(handler.getClient(), change.getTarget(), true);
+			return false;
 		}
 
-		int syncId = handler.getServer().lockEntry(handler.getClient(), this.change.getTarget());
-		handler.getServer().sendToAllExcept(handler.getClient(), new EntryChangeS2CPacket(syncId, this.change));
+		return true;
+	}
 
-		if (this.change.getDeobfName().isSet()) {
-			handler.getServer().sendMessage(Message.rename(handler.getServer().getUsername(handler.getClient()), this.change.getTarget(), this.change.getDeobfName().getNewValue()));
-		} else if (this.change.getDeobfName().isReset()) {
-			handler.getServer().sendMessage(Message.removeMapping(handler.getServer().getUsername(handler.getClient()), this.change.getTarget()));
+	static void addMessages(List<Message> messages, String username, EntryChange<?> change) {
+		if (change.getDeobfName().isSet()) {
+			messages.add(Message.rename(username, change.getTarget(), change.getDeobfName().getNewValue()));
+		} else if (change.getDeobfName().isReset()) {
+			messages.add(Message.removeMapping(username, change.getTarget()));
 		}
 
-		if (!this.change.getJavadoc().isUnchanged()) {
-			handler.getServer().sendMessage(Message.editDocs(handler.getServer().getUsername(handler.getClient()), this.change.getTarget()));
+		if (!change.getJavadoc().isUnchanged()) {
+			messages.add(Message.editDocs(username, change.getTarget()));
 		}
 	}
 
@@ -1,31 +1,47 @@
 package cuchaz.enigma.network.packet;
 
 import cuchaz.enigma.network.EnigmaServer;
+import cuchaz.enigma.network.MappingsVersion;
 import cuchaz.enigma.network.ServerPacketHandler;
 import cuchaz.enigma.network.Message;
 
+import javax.annotation.Nullable;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Arrays;
 
 public class LoginC2SPacket implements Packet<ServerPacketHandler> {
+	private int protocolVersion;
 	private byte[] jarChecksum;
 	private char[] password;
 	private String username;
+	private MappingsVersion resumeFrom;
 
 	LoginC2SPacket() {
 	}
 
 	public LoginC2SPacket(byte[] jarChecksum, char[] password, String username) {
+		this(jarChecksum, password, username, null);
+	}
+
+	/**
+	 * @param resumeFrom the version of the mappings the client already has
+	 *                   from an earlier connection to the same server, or
+	 *                   {@code null} to receive all mappings
+	 */
+	public LoginC2SPacket(byte[] jarChecksum, char[] password, String username, @Nullable MappingsVersion resumeFrom) {
+		this.protocolVersion = EnigmaServer.PROTOCOL_VERSION;
 		this.jarChecksum = jarChecksum;
 		this.password = password;
 		this.username = username;
+		this.resumeFrom = resumeFrom;
 	}
 
 	@Override
 	public void read(DataInput input) throws IOException {
-		if (input.readUnsignedShort() != EnigmaServer.PROTOCOL_VERSION) {
+		this.protocolVersion = input.readUnsignedShort();
+		if (protocolVersion < EnigmaServer.MIN_PROTOCOL_VERSION || protocolVersion > EnigmaServer.PROTOCOL_VERSION) {
 			throw new IOException("Mismatching protocol");
 		}
 		this.jarChecksum = new byte[EnigmaServer.CHECKSUM_SIZE];
@@ -35,23 +51,36 @@ public class LoginC2SPacket implements Packet<ServerPacketHandler> {
 			password[i] = input.readChar();
 		}
 		this.username = PacketHelper.readString(input);
+		if (protocolVersion >= EnigmaServer.DELTA_SYNC_PROTOCOL_VERSION && input.readBoolean()) {
+			this.resumeFrom = PacketHelper.readMappingsVersion(input);
+		}
 	}
 
 	@Override
 	public void write(DataOutput output) throws IOException {
-		output.writeShort(EnigmaServer.PROTOCOL_VERSION);
+		output.writeShort(protocolVersion);
 		output.write(jarChecksum);
 		output.writeByte(password.length);
 		for (char c : password) {
 			output.writeChar(c);
 		}
 		PacketHelper.writeString(output, username);
+		if (protocolVersion >= EnigmaServer.DELTA_SYNC_PROTOCOL_VERSION) {
+			output.writeBoolean(resumeFrom != null);
+			if (resumeFrom != null) {
+				PacketHelper.writeMappingsVersion(output, resumeFrom);
+			}
+		}
+	}
+
+	public int getProtocolVersion() {
+		return protocolVersion;
 	}
 
 	@Override
 	public void handle(ServerPacketHandler handler) {
-		boolean usernameTaken = handler.getServer().isUsernameTaken(username);
-		handler.getServer().setUsername(handler.getClient(), username);
+		handler.getServer().setProtocolVersion(handler.getClient(), protocolVersion);
+		boolean usernameTaken = handler.getServer().setUsername(handler.getClient(), username);
 		handler.getServer().log(username + " logged in with IP " + handler.getClient().getInetAddress().toString() + ":" + handler.getClient().getPort());
 
 		if (!Arrays.equals(password, handler.getServer().getPassword())) {
@@ -69,7 +98,11 @@ public class LoginC2SPacket implements Packet<ServerPacketHandler> {
 			return;
 		}
 
-		handler.getServer().sendPacket(handler.getClient(), new SyncMappingsS2CPacket(handler.getServer().getMappings().getObfToDeobf()));
+		if (protocolVersion >= EnigmaServer.BATCH_PROTOCOL_VERSION) {
+			handler.getServer().sendPacket(handler.getClient(), new ProtocolVersionS2CPacket(EnigmaServer.PROTOCOL_VERSION));
+		}
+
+		handler.getServer().sendMappings(handler.getClient(), resumeFrom);
 		handler.getServer().sendMessage(Message.connect(username));
 	}
 }
@@ -0,0 +1,34 @@
+package cuchaz.enigma.network.packet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import cuchaz.enigma.network.ClientPacketHandler;
+import cuchaz.enigma.network.MappingsVersion;
+
+public class MappingsVersionS2CPacket implements Packet<ClientPacketHandler> {
+	private MappingsVersion version;
+
+	MappingsVersionS2CPacket() {
+	}
+
+	public MappingsVersionS2CPacket(MappingsVersion version) {
+		this.version = version;
+	}
+
+	@Override
+	public void read(DataInput input) throws IOException {
+		this.version = PacketHelper.readMappingsVersion(input);
+	}
+
+	@Override
+	public void write(DataOutput output) throws IOException {
+		PacketHelper.writeMappingsVersion(output, version);
+	}
+
+	@Override
+	public void handle(ClientPacketHandler handler) {
+		handler.setMappingsVersion(version);
+	}
+}
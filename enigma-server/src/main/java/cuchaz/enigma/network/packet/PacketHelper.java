@@ -4,7 +4,10 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
+import cuchaz.enigma.network.MappingsVersion;
 import cuchaz.enigma.translation.mapping.AccessModifier;
 import cuchaz.enigma.translation.mapping.EntryChange;
 import cuchaz.enigma.translation.representation.MethodDescriptor;
@@ -136,14 +139,43 @@ public class PacketHelper {
 		output.write(bytes);
 	}
 
+	public static int readVarInt(DataInput input) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = input.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("VarInt too long");
+	}
+
+	public static void writeVarInt(DataOutput output, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			output.writeByte(value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		output.writeByte(value);
+	}
+
+	public static MappingsVersion readMappingsVersion(DataInput input) throws IOException {
+		return new MappingsVersion(input.readLong(), input.readLong());
+	}
+
+	public static void writeMappingsVersion(DataOutput output, MappingsVersion version) throws IOException {
+		output.writeLong(version.logId());
+		output.writeLong(version.version());
+	}
+
 	public static EntryChange<?> readEntryChange(DataInput input) throws IOException {
 		Entry<?> e = readEntry(input);
 		EntryChange<?> change = EntryChange.modify(e);
 
 		int flags = input.readUnsignedByte();
-		TristateChange.Type deobfNameT = TristateChange.Type.values()[flags & 0x3];
-		TristateChange.Type accessT = TristateChange.Type.values()[flags >> 2 & 0x3];
-		TristateChange.Type javadocT = TristateChange.Type.values()[flags >> 4 & 0x3];
+		TristateChange.Type deobfNameT = readOrdinal(TristateChange.Type.values(), flags & 0x3);
+		TristateChange.Type accessT = readOrdinal(TristateChange.Type.values(), flags >> 2 & 0x3);
+		TristateChange.Type javadocT = readOrdinal(TristateChange.Type.values(), flags >> 4 & 0x3);
 
 		switch (deobfNameT) {
 			case RESET:
@@ -159,7 +191,7 @@ public class PacketHelper {
 				change = change.clearAccess();
 				break;
 			case SET:
-				change = change.withAccess(AccessModifier.values()[flags >> 6 & 0x3]);
+				change = change.withAccess(readOrdinal(AccessModifier.values(), flags >> 6 & 0x3));
 				break;
 		}
 
@@ -175,6 +207,34 @@ public class PacketHelper {
 		return change;
 	}
 
+	private static <T extends Enum<T>> T readOrdinal(T[] values, int ordinal) throws IOException {
+		if (ordinal >= values.length) {
+			throw new IOException("Invalid " + values[0].getDeclaringClass().getSimpleName() + " ordinal " + ordinal);
+		}
+
+		return values[ordinal];
+	}
+
+	public static List<EntryChange<?>> readEntryChanges(DataInput input) throws IOException {
+		int size = readVarInt(input);
+		if (size < 0) {
+			throw new IOException("Invalid entry change count " + size);
+		}
+
+		List<EntryChange<?>> changes = new ArrayList<>(Math.min(size, 1024));
+		for (int i = 0; i < size; i++) {
+			changes.add(readEntryChange(input));
+		}
+		return changes;
+	}
+
+	public static void writeEntryChanges(DataOutput output, List<EntryChange<?>> changes) throws IOException {
+		writeVarInt(output, changes.size());
+		for (EntryChange<?> change : changes) {
+			writeEntryChange(output, change);
+		}
+	}
+
 	public static void writeEntryChange(DataOutput output, EntryChange<?> change) throws IOException {
 		writeEntry(output, change.getTarget());
 		int flags = change.getDeobfName().getType().ordinal() |
@@ -29,12 +29,19 @@ public class PacketRegistry {
 		registerC2S(1, ConfirmChangeC2SPacket.class, ConfirmChangeC2SPacket::new);
 		registerC2S(6, MessageC2SPacket.class, MessageC2SPacket::new);
 		registerC2S(7, EntryChangeC2SPacket.class, EntryChangeC2SPacket::new);
+		registerC2S(8, EntryChangeBatchC2SPacket.class, EntryChangeBatchC2SPacket::new);
 
 		registerS2C(0, KickS2CPacket.class, KickS2CPacket::new);
 		registerS2C(1, SyncMappingsS2CPacket.class, SyncMappingsS2CPacket::new);
+		registerS2C(2, SyncMappingsChunkS2CPacket.class, SyncMappingsChunkS2CPacket::new);
+		registerS2C(3, MappingsVersionS2CPacket.class, MappingsVersionS2CPacket::new);
+		registerS2C(4, ProtocolVersionS2CPacket.class, ProtocolVersionS2CPacket::new);
 		registerS2C(6, MessageS2CPacket.class, MessageS2CPacket::new);
 		registerS2C(7, UserListS2CPacket.class, UserListS2CPacket::new);
 		registerS2C(8, EntryChangeS2CPacket.class, EntryChangeS2CPacket::new);
+		registerS2C(9, VersionedEntryChangeS2CPacket.class, VersionedEntryChangeS2CPacket::new);
+		registerS2C(10, EntryChangeBatchS2CPacket.class, EntryChangeBatchS2CPacket::new);
+		registerS2C(11, EntryChangeAckS2CPacket.class, EntryChangeAckS2CPacket::new);
 	}
 
 	public static int getC2SId(Packet<ServerPacketHandler> packet) {
@@ -0,0 +1,38 @@
+package cuchaz.enigma.network.packet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import cuchaz.enigma.network.ClientPacketHandler;
+
+/**
+ * Tells a client which protocol version the server speaks, so it only sends
+ * packets the server understands. Only sent to clients supporting
+ * {@link cuchaz.enigma.network.EnigmaServer#BATCH_PROTOCOL_VERSION}.
+ */
+public class ProtocolVersionS2CPacket implements Packet<ClientPacketHandler> {
+	private int protocolVersion;
+
+	ProtocolVersionS2CPacket() {
+	}
+
+	public ProtocolVersionS2CPacket(int protocolVersion) {
+		this.protocolVersion = protocolVersion;
+	}
+
+	@Override
+	public void read(DataInput input) throws IOException {
+		this.protocolVersion = input.readUnsignedShort();
+	}
+
+	@Override
+	public void write(DataOutput output) throws IOException {
+		output.writeShort(this.protocolVersion);
+	}
+
+	@Override
+	public void handle(ClientPacketHandler handler) {
+		handler.setServerProtocolVersion(this.protocolVersion);
+	}
+}
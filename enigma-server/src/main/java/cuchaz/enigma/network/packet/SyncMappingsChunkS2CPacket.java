@@ -0,0 +1,250 @@
+package cuchaz.enigma.network.packet;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.google.common.collect.Lists;
+
+import cuchaz.enigma.network.ClientPacketHandler;
+import cuchaz.enigma.network.EnigmaServer;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.*;
+
+/**
+ * Part of the mappings, sent in place of a {@link SyncMappingsS2CPacket} to
+ * clients supporting {@link EnigmaServer#CHUNKED_SYNC_PROTOCOL_VERSION}.
+ *
+ * <p>Every chunk holds the mapping trees of a number of top level classes.
+ * The chunk data is deflated, and every string in it is only sent once, in a
+ * string table in front of the trees. Chunks are decoded on the client I/O
+ * thread as they arrive, and the mappings are opened after the last chunk.
+ */
+public class SyncMappingsChunkS2CPacket implements Packet<ClientPacketHandler> {
+	public static final int DEFAULT_CLASSES_PER_CHUNK = 512;
+
+	private static final int ENTRY_CLASS = 0, ENTRY_FIELD = 1, ENTRY_METHOD = 2, ENTRY_LOCAL_VAR = 3;
+
+	private List<EntryTreeNode<EntryMapping>> roots;
+	private EntryTree<EntryMapping> mappings;
+	private boolean last;
+
+	SyncMappingsChunkS2CPacket() {
+	}
+
+	public SyncMappingsChunkS2CPacket(List<EntryTreeNode<EntryMapping>> roots, boolean last) {
+		this.roots = roots;
+		this.last = last;
+	}
+
+	/**
+	 * Splits mappings into chunks, which together hold all of the mappings.
+	 *
+	 * @param mappings        the mappings to split
+	 * @param classesPerChunk the maximum number of top level classes per chunk
+	 * @return the chunks, of which there is at least one
+	 */
+	public static List<SyncMappingsChunkS2CPacket> split(EntryTree<EntryMapping> mappings, int classesPerChunk) {
+		List<List<EntryTreeNode<EntryMapping>>> partitions = Lists.partition(mappings.getRootNodes().toList(), classesPerChunk);
+		if (partitions.isEmpty()) {
+			return List.of(new SyncMappingsChunkS2CPacket(List.of(), true));
+		}
+
+		List<SyncMappingsChunkS2CPacket> chunks = new ArrayList<>(partitions.size());
+		for (int i = 0; i < partitions.size(); i++) {
+			chunks.add(new SyncMappingsChunkS2CPacket(partitions.get(i), i == partitions.size() - 1));
+		}
+		return chunks;
+	}
+
+	@Override
+	public void read(DataInput input) throws IOException {
+		last = input.readBoolean();
+		byte[] compressed = new byte[input.readInt()];
+		input.readFully(compressed);
+
+		try (DataInputStream data = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed))))) {
+			String[] strings = new String[PacketHelper.readVarInt(data)];
+			for (int i = 0; i < strings.length; i++) {
+				strings[i] = PacketHelper.readString(data);
+			}
+
+			mappings = new HashEntryTree<>();
+			int size = PacketHelper.readVarInt(data);
+			for (int i = 0; i < size; i++) {
+				readEntryTreeNode(data, strings, null);
+			}
+		}
+	}
+
+	private void readEntryTreeNode(DataInput input, String[] strings, Entry<?> parent) throws IOException {
+		Entry<?> entry = readEntry(input, strings, parent);
+		String name = readOptionalString(input, strings);
+		String javadoc = readOptionalString(input, strings);
+		mappings.insert(entry, new EntryMapping(name, javadoc));
+		int size = PacketHelper.readVarInt(input);
+		for (int i = 0; i < size; i++) {
+			readEntryTreeNode(input, strings, entry);
+		}
+	}
+
+	private static Entry<?> readEntry(DataInput input, String[] strings, Entry<?> parent) throws IOException {
+		int type = input.readUnsignedByte();
+		String name = readString(input, strings);
+
+		switch (type) {
+			case ENTRY_CLASS: {
+				if (parent != null && !(parent instanceof ClassEntry)) {
+					throw new IOException("Class requires class parent");
+				}
+
+				return new ClassEntry((ClassEntry) parent, name);
+			}
+			case ENTRY_FIELD: {
+				if (!(parent instanceof ClassEntry parentClass)) {
+					throw new IOException("Field requires class parent");
+				}
+
+				return new FieldEntry(parentClass, name, new TypeDescriptor(readString(input, strings)));
+			}
+			case ENTRY_METHOD: {
+				if (!(parent instanceof ClassEntry parentClass)) {
+					throw new IOException("Method requires class parent");
+				}
+
+				return new MethodEntry(parentClass, name, new MethodDescriptor(readString(input, strings)));
+			}
+			case ENTRY_LOCAL_VAR: {
+				if (!(parent instanceof MethodEntry parentMethod)) {
+					throw new IOException("Local variable requires method parent");
+				}
+
+				int index = PacketHelper.readVarInt(input);
+				boolean parameter = input.readBoolean();
+				return new LocalVariableEntry(parentMethod, index, name, parameter, null);
+			}
+			default:
+				throw new IOException("Received unknown entry type " + type);
+		}
+	}
+
+	private static String readString(DataInput input, String[] strings) throws IOException {
+		int index = PacketHelper.readVarInt(input);
+		if (index < 0 || index >= strings.length) {
+			throw new IOException("Invalid string index " + index);
+		}
+		return strings[index];
+	}
+
+	private static String readOptionalString(DataInput input, String[] strings) throws IOException {
+		int index = PacketHelper.readVarInt(input);
+		if (index == 0) {
+			return null;
+		}
+		if (index > strings.length) {
+			throw new IOException("Invalid string index " + (index - 1));
+		}
+		return strings[index - 1];
+	}
+
+	@Override
+	public void write(DataOutput output) throws IOException {
+		// the trees are written first to collect the string table
+		StringTable strings = new StringTable();
+		ByteArrayOutputStream trees = new ByteArrayOutputStream();
+		DataOutputStream treeOutput = new DataOutputStream(trees);
+		PacketHelper.writeVarInt(treeOutput, roots.size());
+		for (EntryTreeNode<EntryMapping> node : roots) {
+			writeEntryTreeNode(treeOutput, strings, node);
+		}
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(compressed)))) {
+			PacketHelper.writeVarInt(data, strings.strings.size());
+			for (String string : strings.strings) {
+				PacketHelper.writeString(data, string);
+			}
+			trees.writeTo(data);
+		}
+
+		output.writeBoolean(last);
+		output.writeInt(compressed.size());
+		output.write(compressed.toByteArray());
+	}
+
+	private static void writeEntryTreeNode(DataOutput output, StringTable strings, EntryTreeNode<EntryMapping> node) throws IOException {
+		writeEntry(output, strings, node.getEntry());
+		EntryMapping value = node.getValue();
+		if (value == null) value = EntryMapping.DEFAULT;
+
+		PacketHelper.writeVarInt(output, value.targetName() != null ? strings.indexOf(value.targetName()) + 1 : 0);
+		PacketHelper.writeVarInt(output, value.javadoc() != null ? strings.indexOf(value.javadoc()) + 1 : 0);
+		List<? extends EntryTreeNode<EntryMapping>> children = List.copyOf(node.getChildNodes());
+		PacketHelper.writeVarInt(output, children.size());
+		for (EntryTreeNode<EntryMapping> child : children) {
+			writeEntryTreeNode(output, strings, child);
+		}
+	}
+
+	private static void writeEntry(DataOutput output, StringTable strings, Entry<?> entry) throws IOException {
+		if (entry instanceof ClassEntry) {
+			output.writeByte(ENTRY_CLASS);
+		} else if (entry instanceof FieldEntry) {
+			output.writeByte(ENTRY_FIELD);
+		} else if (entry instanceof MethodEntry) {
+			output.writeByte(ENTRY_METHOD);
+		} else if (entry instanceof LocalVariableEntry) {
+			output.writeByte(ENTRY_LOCAL_VAR);
+		} else {
+			throw new IOException("Don't know how to serialize entry of type " + entry.getClass().getSimpleName());
+		}
+
+		PacketHelper.writeVarInt(output, strings.indexOf(entry.getName()));
+
+		if (entry instanceof FieldEntry field) {
+			PacketHelper.writeVarInt(output, strings.indexOf(field.getDesc().toString()));
+		} else if (entry instanceof MethodEntry method) {
+			PacketHelper.writeVarInt(output, strings.indexOf(method.getDesc().toString()));
+		} else if (entry instanceof LocalVariableEntry localVar) {
+			PacketHelper.writeVarInt(output, localVar.getIndex());
+			output.writeBoolean(localVar.isArgument());
+		}
+	}
+
+	EntryTree<EntryMapping> getMappings() {
+		return mappings;
+	}
+
+	boolean isLast() {
+		return last;
+	}
+
+	@Override
+	public void handle(ClientPacketHandler controller) {
+		controller.receiveMappingsChunk(mappings, last);
+		if (last) {
+			controller.sendPacket(new ConfirmChangeC2SPacket(EnigmaServer.DUMMY_SYNC_ID));
+		}
+	}
+
+	private static final class StringTable {
+		private final List<String> strings = new ArrayList<>();
+		private final Map<String, Integer> indices = new HashMap<>();
+
+		private int indexOf(String string) {
+			return indices.computeIfAbsent(string, s -> {
+				strings.add(s);
+				return strings.size() - 1;
+			});
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package cuchaz.enigma.network.packet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import cuchaz.enigma.network.ClientPacketHandler;
+import cuchaz.enigma.network.MappingsVersion;
+import cuchaz.enigma.translation.mapping.EntryChange;
+
+/**
+ * An {@link EntryChangeS2CPacket} which also carries the mappings version
+ * after the change, sent to clients supporting delta resyncs.
+ */
+public class VersionedEntryChangeS2CPacket implements Packet<ClientPacketHandler> {
+
+	private int syncId;
+	private MappingsVersion version;
+	private EntryChange<?> change;
+
+	public VersionedEntryChangeS2CPacket(int syncId, MappingsVersion version, EntryChange<?> change) {
+		this.syncId = syncId;
+		this.version = version;
+		this.change = change;
+	}
+
+	VersionedEntryChangeS2CPacket() {
+	}
+
+	@Override
+	public void read(DataInput input) throws IOException {
+		this.syncId = input.readUnsignedShort();
+		this.version = PacketHelper.readMappingsVersion(input);
+		this.change = PacketHelper.readEntryChange(input);
+	}
+
+	@Override
+	public void write(DataOutput output) throws IOException {
+		output.writeShort(this.syncId);
+		PacketHelper.writeMappingsVersion(output, this.version);
+		PacketHelper.writeEntryChange(output, this.change);
+	}
+
+	@Override
+	public void handle(ClientPacketHandler handler) {
+		if (handler.applyChangeFromServer(this.change)) {
+			handler.setMappingsVersion(this.version);
+			handler.sendPacket(new ConfirmChangeC2SPacket(this.syncId));
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+package cuchaz.enigma.network;
+
+import cuchaz.enigma.translation.mapping.EntryChange;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class EntryChangeLogTest {
+
+	private static EntryChange<ClassEntry> change(int i) {
+		return EntryChange.modify(new ClassEntry("a" + i)).withDeobfName("b" + i);
+	}
+
+	@Test
+	public void changesSinceVersion() {
+		EntryChangeLog log = new EntryChangeLog(8);
+		MappingsVersion start = log.getVersion();
+		log.append(change(0));
+		MappingsVersion middle = log.getVersion();
+		assertEquals(2, log.append(change(1)));
+
+		assertEquals(List.of(change(0), change(1)), log.getChangesSince(start));
+		assertEquals(List.of(change(1)), log.getChangesSince(middle));
+		assertEquals(List.of(), log.getChangesSince(log.getVersion()));
+	}
+
+	@Test
+	public void changesSinceOldestLoggedVersion() {
+		EntryChangeLog log = new EntryChangeLog(4);
+		for (int i = 0; i < 10; i++) {
+			log.append(change(i));
+		}
+
+		MappingsVersion version = log.getVersion();
+		MappingsVersion oldest = new MappingsVersion(version.logId(), version.version() - 4);
+		assertEquals(List.of(change(6), change(7), change(8), change(9)), log.getChangesSince(oldest));
+	}
+
+	@Test
+	public void resyncTooOldVersion() {
+		EntryChangeLog log = new EntryChangeLog(4);
+		MappingsVersion start = log.getVersion();
+		for (int i = 0; i < 5; i++) {
+			log.append(change(i));
+		}
+
+		assertNull(log.getChangesSince(start));
+	}
+
+	@Test
+	public void resyncFutureVersion() {
+		EntryChangeLog log = new EntryChangeLog(4);
+		log.append(change(0));
+		MappingsVersion version = log.getVersion();
+
+		assertNull(log.getChangesSince(new MappingsVersion(version.logId(), version.version() + 1)));
+	}
+
+	@Test
+	public void resyncOtherLog() {
+		EntryChangeLog log = new EntryChangeLog(4);
+		EntryChangeLog other = new EntryChangeLog(4);
+		assertNotEquals(log.getVersion(), other.getVersion());
+
+		assertNull(log.getChangesSince(other.getVersion()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectEmptyLog() {
+		new EntryChangeLog(0);
+	}
+}
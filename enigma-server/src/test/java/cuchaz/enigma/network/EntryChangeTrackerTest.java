@@ -0,0 +1,121 @@
+package cuchaz.enigma.network;
+
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import org.junit.Test;
+
+import java.net.Socket;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EntryChangeTrackerTest {
+	private static final ClassEntry ENTRY = new ClassEntry("a");
+	private static final ClassEntry OTHER_ENTRY = new ClassEntry("b");
+
+	@Test
+	public void lockUntilConfirmed() {
+		EntryChangeTracker tracker = new EntryChangeTracker();
+		Socket client = new Socket();
+		Socket otherClient = new Socket();
+
+		int syncId = tracker.lock(List.of(ENTRY), List.of(client));
+		assertFalse(tracker.canModify(client, ENTRY));
+		assertTrue(tracker.canModify(otherClient, ENTRY));
+		assertTrue(tracker.canModify(client, OTHER_ENTRY));
+
+		tracker.confirm(client, tracker.resolveSyncId(client, syncId & 0xFFFF));
+		assertTrue(tracker.canModify(client, ENTRY));
+		assertEquals(0, tracker.getPendingCount(client));
+	}
+
+	@Test
+	public void resolveWireIdsAfterWrapping() {
+		EntryChangeTracker tracker = new EntryChangeTracker();
+		Socket client = new Socket();
+
+		int first = tracker.lock(List.of(ENTRY), List.of(client));
+		for (int i = 0; i < 0x10000; i++) {
+			int syncId = tracker.lock(List.of(OTHER_ENTRY), List.of());
+			assertNotEquals(EnigmaServer.DUMMY_SYNC_ID, syncId & 0xFFFF);
+		}
+		int second = tracker.lock(List.of(OTHER_ENTRY), List.of(client));
+		assertTrue(second > 0xFFFF);
+
+		// the 16-bit wire ids resolve to the full sync ids past 65536
+		assertEquals(Integer.valueOf(second), tracker.resolveSyncId(client, second & 0xFFFF));
+		assertEquals(Integer.valueOf(first), tracker.resolveSyncId(client, first & 0xFFFF));
+		assertNull(tracker.resolveSyncId(new Socket(), second & 0xFFFF));
+
+		tracker.confirm(client, tracker.resolveSyncId(client, second & 0xFFFF));
+		assertFalse(tracker.canModify(client, ENTRY));
+		assertTrue(tracker.canModify(client, OTHER_ENTRY));
+		assertNull(tracker.resolveSyncId(client, second & 0xFFFF));
+	}
+
+	@Test
+	public void resolveOldestMatchingWireId() {
+		EntryChangeTracker tracker = new EntryChangeTracker();
+		Socket client = new Socket();
+
+		int first = tracker.lock(List.of(ENTRY), List.of(client));
+		int second;
+		do {
+			// relocking the entry releases its previous change
+			second = tracker.lock(List.of(OTHER_ENTRY), List.of(client));
+		} while ((second & 0xFFFF) != (first & 0xFFFF));
+		assertEquals(2, tracker.getPendingCount(client));
+
+		assertEquals(Integer.valueOf(first), tracker.resolveSyncId(client, first & 0xFFFF));
+		tracker.confirm(client, first);
+		assertEquals(Integer.valueOf(second), tracker.resolveSyncId(client, second & 0xFFFF));
+	}
+
+	@Test
+	public void relockingMovesEntry() {
+		EntryChangeTracker tracker = new EntryChangeTracker();
+		Socket client = new Socket();
+
+		int first = tracker.lock(List.of(ENTRY), List.of(client));
+		int second = tracker.lock(List.of(ENTRY), List.of(client));
+
+		// the first change has no entries left, so it no longer has to be confirmed
+		assertNull(tracker.resolveSyncId(client, first & 0xFFFF));
+		assertEquals(1, tracker.getPendingCount(client));
+
+		tracker.confirm(client, second);
+		assertTrue(tracker.canModify(client, ENTRY));
+	}
+
+	@Test
+	public void extendPendingChange() {
+		EntryChangeTracker tracker = new EntryChangeTracker();
+		Socket client = new Socket();
+
+		int syncId = tracker.lock(List.of(ENTRY), List.of(client));
+		assertTrue(tracker.extend(syncId, List.of(OTHER_ENTRY)));
+		assertFalse(tracker.canModify(client, OTHER_ENTRY));
+
+		tracker.confirm(client, syncId);
+		assertTrue(tracker.canModify(client, OTHER_ENTRY));
+		assertFalse(tracker.extend(syncId, List.of(OTHER_ENTRY)));
+	}
+
+	@Test
+	public void removeClientConfirmsChanges() {
+		EntryChangeTracker tracker = new EntryChangeTracker();
+		Socket client = new Socket();
+		Socket otherClient = new Socket();
+
+		int syncId = tracker.lock(List.of(ENTRY), List.of(client, otherClient));
+		tracker.removeClient(otherClient);
+		assertFalse(tracker.canModify(client, ENTRY));
+		assertEquals(0, tracker.getPendingCount(otherClient));
+
+		tracker.confirm(client, syncId);
+		assertTrue(tracker.canModify(client, ENTRY));
+	}
+}
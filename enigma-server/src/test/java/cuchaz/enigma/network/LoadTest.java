@@ -0,0 +1,293 @@
+package cuchaz.enigma.network;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.gson.GsonBuilder;
+
+import cuchaz.enigma.Enigma;
+import cuchaz.enigma.EnigmaProfile;
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.analysis.index.EntryIndex;
+import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.network.packet.EntryChangeC2SPacket;
+import cuchaz.enigma.network.packet.LoginC2SPacket;
+import cuchaz.enigma.network.packet.Packet;
+import cuchaz.enigma.translation.mapping.EntryChange;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.serde.MappingFormat;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+
+/**
+ * Stresses a {@link DedicatedEnigmaServer} with simulated clients, which log
+ * in over loopback, sync the mappings and then rename random entries of the
+ * jar at a fixed rate. Reports the change throughput, how long changes take
+ * to reach the other clients, and the heap used by the JVM, which holds both
+ * the server and the simulated clients.
+ *
+ * <p>Run with {@code gradlew :enigma-server:loadTest --args="--clients 50"},
+ * see {@code --help} for all options.
+ */
+public class LoadTest {
+	private final List<Entry<?>> entries;
+	private final Map<String, Long> sentTimes = new ConcurrentHashMap<>();
+	private final LatencyHistogram propagationTime = new LatencyHistogram();
+	private final LongAdder changesSent = new LongAdder();
+	private final LongAdder changesReceived = new LongAdder();
+	private final LongAdder changesRejected = new LongAdder();
+	private final AtomicInteger disconnects = new AtomicInteger();
+
+	private LoadTest(List<Entry<?>> entries) {
+		this.entries = entries;
+	}
+
+	public static void main(String[] args) throws Exception {
+		OptionParser parser = new OptionParser();
+
+		OptionSpec<Path> jarOpt = parser.accepts("jar", "Jar file whose entries are renamed")
+				.withRequiredArg()
+				.withValuesConvertedBy(DedicatedEnigmaServer.PathConverter.INSTANCE)
+				.defaultsTo(Paths.get("../enigma/build/test-obf/translation.jar"));
+
+		OptionSpec<Integer> clientsOpt = parser.accepts("clients", "Number of simulated clients")
+				.withRequiredArg()
+				.ofType(Integer.class)
+				.defaultsTo(20);
+
+		OptionSpec<Double> rateOpt = parser.accepts("rate", "Renames per second sent by every client")
+				.withRequiredArg()
+				.ofType(Double.class)
+				.defaultsTo(5.0);
+
+		OptionSpec<Integer> durationOpt = parser.accepts("duration", "Seconds to send renames for")
+				.withRequiredArg()
+				.ofType(Integer.class)
+				.defaultsTo(30);
+
+		OptionSpec<Integer> portOpt = parser.accepts("port", "Port to run the server on")
+				.withRequiredArg()
+				.ofType(Integer.class)
+				.defaultsTo(EnigmaServer.DEFAULT_PORT + 1);
+
+		OptionSpec<Void> nioOpt = parser.accepts("nio", "Use the non-blocking server transport");
+		OptionSpec<Void> metricsOpt = parser.accepts("metrics", "Print the server metrics at the end");
+		OptionSpec<Void> helpOpt = parser.accepts("help").forHelp();
+
+		OptionSet parsedArgs = parser.parse(args);
+		if (parsedArgs.has(helpOpt)) {
+			parser.printHelpOn(System.out);
+			return;
+		}
+
+		int clientCount = parsedArgs.valueOf(clientsOpt);
+		double rate = parsedArgs.valueOf(rateOpt);
+		int duration = parsedArgs.valueOf(durationOpt);
+		int port = parsedArgs.valueOf(portOpt);
+
+		System.out.println("Indexing jar...");
+		EnigmaProfile profile = EnigmaProfile.EMPTY;
+		EnigmaProject project = Enigma.builder().setProfile(profile).build().openJar(parsedArgs.valueOf(jarOpt), new ClasspathClassProvider(), ProgressListener.none());
+		LoadTest test = new LoadTest(collectEntries(project.getJarIndex().getEntryIndex()));
+
+		Path directory = Files.createTempDirectory("enigma-load-test");
+		EntryRemapper mappings = EntryRemapper.empty(project.getJarIndex());
+		ServerTransport transport = parsedArgs.has(nioOpt) ? new NioServerTransport() : new SocketServerTransport();
+		WriteAheadLog writeAheadLog = new WriteAheadLog(directory.resolve("mappings.wal"));
+		DedicatedEnigmaServer server = new DedicatedEnigmaServer(project.getJarChecksum(), new char[0], profile, MappingFormat.ENIGMA_DIRECTORY, directory.resolve("mappings"),
+				new PrintWriter(Writer.nullWriter()), mappings, port, transport, writeAheadLog) {
+			@Override
+			public void log(String message) {
+			}
+		};
+		writeAheadLog.start();
+		server.start();
+		Thread serverThread = new Thread(server::runTasks);
+		serverThread.setName("Server thread");
+		serverThread.setDaemon(true);
+		serverThread.start();
+
+		long heapBefore = usedHeap();
+
+		System.out.println("Connecting " + clientCount + " clients...");
+		long syncStart = System.nanoTime();
+		List<SimulatedClient> clients = new ArrayList<>();
+		for (int i = 0; i < clientCount; i++) {
+			SimulatedClient client = test.new SimulatedClient(i, port, project.getJarChecksum());
+			client.connect();
+			clients.add(client);
+		}
+		for (SimulatedClient client : clients) {
+			if (!client.synced.await(1, TimeUnit.MINUTES)) {
+				throw new IllegalStateException("Client " + client.id + " did not sync within a minute");
+			}
+		}
+		System.out.printf("All clients synced after %.1f ms%n", (System.nanoTime() - syncStart) / 1_000_000.0);
+
+		System.out.println("Sending " + rate + " renames per second per client for " + duration + " seconds...");
+		ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+		long period = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+		Random random = new Random();
+		for (SimulatedClient client : clients) {
+			scheduler.scheduleAtFixedRate(client::sendRandomRename, (long) (random.nextDouble() * period), period, TimeUnit.NANOSECONDS);
+		}
+		long loadStart = System.nanoTime();
+		Thread.sleep(TimeUnit.SECONDS.toMillis(duration));
+		scheduler.shutdownNow();
+		double elapsed = (System.nanoTime() - loadStart) / 1_000_000_000.0;
+
+		// give the last changes time to arrive
+		Thread.sleep(1000);
+		long heapAfter = usedHeap();
+
+		System.out.println();
+		System.out.printf("Renames sent:      %d (%.1f/s)%n", test.changesSent.sum(), test.changesSent.sum() / elapsed);
+		System.out.printf("Renames rejected:  %d%n", test.changesRejected.sum());
+		System.out.printf("Changes received:  %d (%.1f/s)%n", test.changesReceived.sum(), test.changesReceived.sum() / elapsed);
+		System.out.printf("Propagation time:  %s%n", test.propagationTime.toJson());
+		System.out.printf("Disconnects:       %d%n", test.disconnects.get());
+		System.out.printf("Heap used:         %.1f MB before clients connected, %.1f MB after the test%n", heapBefore / 1048576.0, heapAfter / 1048576.0);
+
+		if (parsedArgs.has(metricsOpt)) {
+			System.out.println(new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create().toJson(server.getMetrics().toJson()));
+		}
+
+		// the clients are dropped with the JVM, disconnecting them would only spam the output
+		writeAheadLog.close();
+		MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+		System.exit(0);
+	}
+
+	private static List<Entry<?>> collectEntries(EntryIndex index) {
+		List<Entry<?>> entries = new ArrayList<>(index.getClasses());
+		entries.addAll(index.getFields());
+		for (MethodEntry method : index.getMethods()) {
+			if (!method.isConstructor()) {
+				entries.add(method);
+			}
+		}
+
+		if (entries.isEmpty()) {
+			throw new IllegalArgumentException("The jar has no entries to rename");
+		}
+
+		return entries;
+	}
+
+	private static long usedHeap() {
+		System.gc();
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private class SimulatedClient implements ClientPacketHandler {
+		private final int id;
+		private final byte[] jarChecksum;
+		private final EnigmaClient client;
+		private final CountDownLatch synced = new CountDownLatch(1);
+		private final Set<String> receivedNames = ConcurrentHashMap.newKeySet();
+		private int nextRename;
+
+		private SimulatedClient(int id, int port, byte[] jarChecksum) {
+			this.id = id;
+			this.jarChecksum = jarChecksum;
+			// packets are handled on the client I/O thread, as there is no UI
+			this.client = new EnigmaClient(this, "127.0.0.1", port, Runnable::run);
+		}
+
+		private void connect() throws IOException {
+			client.connect();
+			client.sendPacket(new LoginC2SPacket(jarChecksum, new char[0], "client" + id));
+		}
+
+		private void sendRandomRename() {
+			Entry<?> entry = entries.get(ThreadLocalRandom.current().nextInt(entries.size()));
+			String name = "load" + id + "_" + nextRename++;
+			sentTimes.put(name, System.nanoTime());
+			changesSent.increment();
+			sendPacket(new EntryChangeC2SPacket(EntryChange.modify(entry).withDeobfName(name)));
+		}
+
+		@Override
+		public void openMappings(EntryTree<EntryMapping> mappings) {
+			synced.countDown();
+		}
+
+		@Override
+		public void receiveMappingsChunk(EntryTree<EntryMapping> mappings, boolean last) {
+			if (last) {
+				synced.countDown();
+			}
+		}
+
+		@Override
+		public boolean applyChangeFromServer(EntryChange<?> change) {
+			String name = change.getDeobfName().isSet() ? change.getDeobfName().getNewValue() : null;
+			Long sentTime = name != null ? sentTimes.get(name) : null;
+			// corrections of rejected renames carry a name the client already received, or none
+			if (sentTime != null && receivedNames.add(name)) {
+				propagationTime.recordSince(sentTime);
+				changesReceived.increment();
+			} else {
+				changesRejected.increment();
+			}
+			return true;
+		}
+
+		@Override
+		public void setServerProtocolVersion(int protocolVersion) {
+		}
+
+		@Override
+		public void setMappingsVersion(MappingsVersion version) {
+		}
+
+		@Override
+		public void acknowledgeChangePacket() {
+		}
+
+		@Override
+		public void disconnectIfConnected(String reason) {
+			disconnects.incrementAndGet();
+			System.err.println("Client " + id + " disconnected: " + reason);
+		}
+
+		@Override
+		public void sendPacket(Packet<ServerPacketHandler> packet) {
+			client.sendPacket(packet);
+		}
+
+		@Override
+		public void addMessage(Message message) {
+		}
+
+		@Override
+		public void updateUserList(List<String> users) {
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package cuchaz.enigma.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MappingsVersionTrackerTest {
+	private static final MappingsVersion VERSION = new MappingsVersion(1, 10);
+
+	@Test
+	public void resumeWithoutChanges() {
+		MappingsVersionTracker tracker = new MappingsVersionTracker();
+		tracker.setVersion(VERSION);
+		tracker.disconnected(false);
+
+		assertEquals(VERSION, tracker.getVersion());
+	}
+
+	@Test
+	public void resumeWithAcknowledgedChanges() {
+		MappingsVersionTracker tracker = new MappingsVersionTracker();
+		tracker.setVersion(VERSION);
+		tracker.changePacketSent();
+		tracker.changePacketSent();
+		tracker.changePacketAcknowledged();
+		tracker.changePacketAcknowledged();
+		tracker.disconnected(false);
+
+		assertEquals(VERSION, tracker.getVersion());
+	}
+
+	@Test
+	public void reconnectWithUnsentChanges() {
+		MappingsVersionTracker tracker = new MappingsVersionTracker();
+		tracker.setVersion(VERSION);
+		tracker.disconnected(true);
+
+		assertNull(tracker.getVersion());
+	}
+
+	@Test
+	public void reconnectWithUnacknowledgedChanges() {
+		MappingsVersionTracker tracker = new MappingsVersionTracker();
+		tracker.setVersion(VERSION);
+		tracker.changePacketSent();
+		tracker.changePacketSent();
+		tracker.changePacketAcknowledged();
+		tracker.disconnected(false);
+
+		assertNull(tracker.getVersion());
+	}
+
+	@Test
+	public void countsStartOverAfterReconnecting() {
+		MappingsVersionTracker tracker = new MappingsVersionTracker();
+		tracker.setVersion(VERSION);
+		tracker.changePacketSent();
+		tracker.disconnected(false);
+
+		// the full sync after reconnecting gives a new version
+		tracker.setVersion(VERSION);
+		tracker.changePacketSent();
+		tracker.changePacketAcknowledged();
+		// a late acknowledgement doesn't make up for an unacknowledged packet
+		tracker.changePacketAcknowledged();
+		tracker.changePacketSent();
+		tracker.disconnected(false);
+
+		assertNull(tracker.getVersion());
+	}
+
+	@Test
+	public void resetDropsVersion() {
+		MappingsVersionTracker tracker = new MappingsVersionTracker();
+		tracker.setVersion(VERSION);
+		tracker.reset();
+
+		assertNull(tracker.getVersion());
+	}
+}
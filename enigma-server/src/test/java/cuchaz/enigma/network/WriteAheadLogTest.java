@@ -0,0 +1,122 @@
+package cuchaz.enigma.network;
+
+import cuchaz.enigma.translation.mapping.EntryChange;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WriteAheadLogTest {
+	private static final ClassEntry ENTRY = new ClassEntry("a");
+
+	private static Path createLogFile() throws IOException {
+		Path path = Files.createTempFile("writeAheadLog", ".wal");
+		Files.delete(path);
+		path.toFile().deleteOnExit();
+		return path;
+	}
+
+	private static EntryChange<ClassEntry> rename(String name) {
+		return EntryChange.modify(ENTRY).withDeobfName(name);
+	}
+
+	private static List<EntryChange<?>> recover(Path path) throws IOException {
+		try (WriteAheadLog log = new WriteAheadLog(path)) {
+			return List.copyOf(log.getRecoveredChanges());
+		}
+	}
+
+	private static void writeChanges(Path path, List<EntryChange<?>> changes) throws IOException {
+		try (WriteAheadLog log = new WriteAheadLog(path)) {
+			changes.forEach(log::append);
+		}
+	}
+
+	@Test
+	public void recoverChanges() throws IOException {
+		Path path = createLogFile();
+		List<EntryChange<?>> changes = List.of(rename("b"), rename("c"), EntryChange.modify(new ClassEntry("d")).withJavadoc("doc"));
+		writeChanges(path, changes);
+
+		assertEquals(changes, recover(path));
+	}
+
+	@Test
+	public void truncateDiscardsChanges() throws IOException {
+		Path path = createLogFile();
+		try (WriteAheadLog log = new WriteAheadLog(path)) {
+			log.append(rename("b"));
+			log.commit(log.drainQueue());
+			log.truncate();
+			log.append(rename("c"));
+		}
+
+		assertEquals(List.of(rename("c")), recover(path));
+	}
+
+	@Test
+	public void truncateDropsChangesTakenBefore() throws IOException {
+		Path path = createLogFile();
+		try (WriteAheadLog log = new WriteAheadLog(path)) {
+			// the writer takes the first change, then the mappings are saved
+			// with the second one before the first change is written
+			log.append(rename("b"));
+			List<WriteAheadLog.Pending> taken = log.drainQueue();
+			log.append(rename("c"));
+			log.truncate();
+			log.commit(taken);
+		}
+
+		assertEquals(List.of(), recover(path));
+	}
+
+	@Test
+	public void recoverTornRecord() throws IOException {
+		Path path = createLogFile();
+		writeChanges(path, List.of(rename("b"), rename("c")));
+
+		long size = Files.size(path);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(size - 3);
+		}
+
+		assertEquals(List.of(rename("b")), recover(path));
+		assertTrue(Files.size(path) < size - 3);
+
+		// the log can be appended to after dropping the torn record
+		writeChanges(path, List.of(rename("d")));
+		assertEquals(List.of(rename("b"), rename("d")), recover(path));
+	}
+
+	@Test
+	public void recoverCorruptRecord() throws IOException {
+		Path path = createLogFile();
+		writeChanges(path, List.of(rename("b"), rename("c")));
+
+		long size = Files.size(path);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer last = ByteBuffer.allocate(1);
+			channel.read(last, size - 1);
+			last.put(0, (byte) (last.get(0) ^ 0xFF));
+			channel.write(last.rewind(), size - 1);
+		}
+
+		assertEquals(List.of(rename("b")), recover(path));
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectOtherFiles() throws IOException {
+		Path path = createLogFile();
+		Files.write(path, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+		recover(path);
+	}
+}
@@ -0,0 +1,117 @@
+package cuchaz.enigma.network.packet;
+
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SyncMappingsChunkS2CPacketTest {
+
+	private static EntryTree<EntryMapping> createMappings(int classes) {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		for (int i = 0; i < classes; i++) {
+			ClassEntry classEntry = new ClassEntry("a/b" + i);
+			mappings.insert(classEntry, new EntryMapping("net/foo/Class" + i));
+			mappings.insert(new ClassEntry(classEntry, "c"), new EntryMapping("Inner", "Inner class " + i));
+			mappings.insert(new FieldEntry(classEntry, "d", new TypeDescriptor("Ljava/lang/String;")), new EntryMapping("field"));
+
+			MethodEntry method = new MethodEntry(classEntry, "e", new MethodDescriptor("(ILjava/lang/String;)V"));
+			mappings.insert(method, new EntryMapping(null, "Only documented"));
+			mappings.insert(new LocalVariableEntry(method, 1, "", true, null), new EntryMapping("count"));
+			mappings.insert(new LocalVariableEntry(method, 3, "", false, null), new EntryMapping("local"));
+		}
+		return mappings;
+	}
+
+	private static List<SyncMappingsChunkS2CPacket> writeAndRead(List<SyncMappingsChunkS2CPacket> chunks) throws IOException {
+		List<SyncMappingsChunkS2CPacket> read = new ArrayList<>();
+		for (SyncMappingsChunkS2CPacket chunk : chunks) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			chunk.write(new DataOutputStream(bytes));
+
+			SyncMappingsChunkS2CPacket packet = new SyncMappingsChunkS2CPacket();
+			packet.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+			read.add(packet);
+		}
+		return read;
+	}
+
+	private static EntryTree<EntryMapping> merge(List<SyncMappingsChunkS2CPacket> chunks) {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		for (SyncMappingsChunkS2CPacket chunk : chunks) {
+			for (EntryTreeNode<EntryMapping> node : chunk.getMappings()) {
+				mappings.insert(node.getEntry(), node.getValue());
+			}
+		}
+		return mappings;
+	}
+
+	private static void assertSameMappings(EntryTree<EntryMapping> expected, EntryTree<EntryMapping> actual) {
+		for (EntryTreeNode<EntryMapping> node : expected) {
+			EntryMapping mapping = node.getValue() != null ? node.getValue() : EntryMapping.DEFAULT;
+			assertEquals(node.getEntry().toString(), mapping, actual.get(node.getEntry()));
+		}
+		for (EntryTreeNode<EntryMapping> node : actual) {
+			assertTrue(node.getEntry().toString(), expected.contains(node.getEntry()));
+		}
+	}
+
+	@Test
+	public void roundTrip() throws IOException {
+		EntryTree<EntryMapping> mappings = createMappings(10);
+		List<SyncMappingsChunkS2CPacket> chunks = writeAndRead(SyncMappingsChunkS2CPacket.split(mappings, 3));
+
+		assertEquals(4, chunks.size());
+		for (int i = 0; i < chunks.size(); i++) {
+			assertEquals(i == chunks.size() - 1, chunks.get(i).isLast());
+		}
+		assertSameMappings(mappings, merge(chunks));
+	}
+
+	@Test
+	public void roundTripLocalVariables() throws IOException {
+		EntryTree<EntryMapping> mappings = createMappings(1);
+		EntryTree<EntryMapping> read = merge(writeAndRead(SyncMappingsChunkS2CPacket.split(mappings, 1)));
+
+		MethodEntry method = new MethodEntry(new ClassEntry("a/b0"), "e", new MethodDescriptor("(ILjava/lang/String;)V"));
+		LocalVariableEntry parameter = (LocalVariableEntry) read.getChildren(method).stream()
+				.filter(entry -> entry instanceof LocalVariableEntry local && local.getIndex() == 1)
+				.findFirst().orElseThrow();
+		LocalVariableEntry local = (LocalVariableEntry) read.getChildren(method).stream()
+				.filter(entry -> entry instanceof LocalVariableEntry variable && variable.getIndex() == 3)
+				.findFirst().orElseThrow();
+
+		assertTrue(parameter.isArgument());
+		assertFalse(local.isArgument());
+		assertEquals(new EntryMapping("count"), read.get(parameter));
+		assertEquals(new EntryMapping("local"), read.get(local));
+	}
+
+	@Test
+	public void roundTripEmpty() throws IOException {
+		List<SyncMappingsChunkS2CPacket> chunks = writeAndRead(SyncMappingsChunkS2CPacket.split(new HashEntryTree<>(), SyncMappingsChunkS2CPacket.DEFAULT_CLASSES_PER_CHUNK));
+
+		assertEquals(1, chunks.size());
+		assertTrue(chunks.get(0).isLast());
+		assertTrue(chunks.get(0).getMappings().isEmpty());
+	}
+}
@@ -22,10 +22,7 @@ import javax.swing.event.CellEditorListener;
 import javax.swing.event.ChangeEvent;
 import javax.swing.tree.*;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import cuchaz.enigma.gui.node.ClassSelectorClassNode;
 import cuchaz.enigma.gui.node.ClassSelectorPackageNode;
 import cuchaz.enigma.gui.util.GuiUtil;
@@ -37,6 +34,15 @@ public class ClassSelector extends JTree {
 
 	public static final Comparator<ClassEntry> DEOBF_CLASS_COMPARATOR = Comparator.comparing(ClassEntry::getFullName);
 
+	// packages are sorted part by part, so that a package comes right before its subpackages
+	private static final Comparator<ClassSelectorPackageNode> PACKAGE_COMPARATOR = (a, b) -> Arrays.compare(a.getPackagePath(), b.getPackagePath());
+
+	/**
+	 * The number of changed classes up to which {@link #setClasses(Collection)}
+	 * updates the nodes of the classes instead of rebuilding the tree.
+	 */
+	private static final int INCREMENTAL_UPDATE_LIMIT = 500;
+
 	private final GuiController controller;
 
 	private DefaultMutableTreeNode rootNodes;
@@ -164,80 +170,91 @@ public class ClassSelector extends JTree {
 		this.renameSelectionListener = renameSelectionListener;
 	}
 
+	/**
+	 * Shows the given classes. If only a few classes were added, removed or
+	 * renamed since the last call, only their nodes are updated, which keeps
+	 * the expansion state of the tree. Otherwise, the tree is rebuilt.
+	 */
 	public void setClasses(Collection<ClassEntry> classEntries) {
-		displayedObfToDeobf.clear();
-
-		List<StateEntry> state = getExpansionState(this);
 		if (classEntries == null) {
+			displayedObfToDeobf.clear();
 			setModel(null);
 			return;
 		}
 
+		// translate every class only once
 		Translator translator = controller.project.getMapper().getDeobfuscator();
-
-		// build the package names
-		Map<String, ClassSelectorPackageNode> packages = Maps.newHashMap();
+		Map<ClassEntry, ClassEntry> obfToDeobf = new HashMap<>(classEntries.size());
 		for (ClassEntry obfClass : classEntries) {
-			ClassEntry deobfClass = translator.translate(obfClass);
-			packages.put(deobfClass.getPackageName(), null);
+			obfToDeobf.put(obfClass, translator.translate(obfClass));
 		}
 
-		// sort the packages
-		List<String> sortedPackageNames = Lists.newArrayList(packages.keySet());
-		sortedPackageNames.sort((a, b) ->
-		{
-			// I can never keep this rule straight when writing these damn things...
-			// a < b => -1, a == b => 0, a > b => +1
+		if (rootNodes == null || getModel() == null || !updateClasses(obfToDeobf)) {
+			rebuildClasses(obfToDeobf);
+		}
+	}
 
-			if (b == null || a == null) {
-				return 0;
+	private boolean updateClasses(Map<ClassEntry, ClassEntry> obfToDeobf) {
+		List<ClassEntry> removed = new ArrayList<>();
+		for (Map.Entry<ClassEntry, ClassEntry> displayed : displayedObfToDeobf.entrySet()) {
+			if (!displayed.getValue().equals(obfToDeobf.get(displayed.getKey()))) {
+				removed.add(displayed.getKey());
 			}
+		}
 
-			String[] aparts = a.split("/");
-			String[] bparts = b.split("/");
-			for (int i = 0; true; i++) {
-				if (i >= aparts.length) {
-					return -1;
-				} else if (i >= bparts.length) {
-					return 1;
-				}
-
-				int result = aparts[i].compareTo(bparts[i]);
-				if (result != 0) {
-					return result;
-				}
+		List<ClassEntry> added = new ArrayList<>();
+		for (Map.Entry<ClassEntry, ClassEntry> entry : obfToDeobf.entrySet()) {
+			if (!entry.getValue().equals(displayedObfToDeobf.get(entry.getKey()))) {
+				added.add(entry.getKey());
 			}
-		});
+		}
 
-		// create the rootNodes node and the package nodes
-		rootNodes = new DefaultMutableTreeNode();
-		for (String packageName : sortedPackageNames) {
-			ClassSelectorPackageNode node = new ClassSelectorPackageNode(packageName);
-			packages.put(packageName, node);
-			rootNodes.add(node);
+		if (removed.size() + added.size() > INCREMENTAL_UPDATE_LIMIT) {
+			return false;
+		}
+
+		for (ClassEntry obfClass : removed) {
+			removeEntry(obfClass);
+		}
+
+		for (ClassEntry obfClass : added) {
+			insertNode(obfClass, obfToDeobf.get(obfClass));
 		}
 
+		return true;
+	}
+
+	private void rebuildClasses(Map<ClassEntry, ClassEntry> obfToDeobf) {
+		List<StateEntry> state = getExpansionState(this);
+		displayedObfToDeobf.clear();
+
 		// put the classes into packages
-		Multimap<String, ClassEntry> packagedClassEntries = ArrayListMultimap.create();
-		for (ClassEntry obfClass : classEntries) {
-			ClassEntry deobfClass = translator.translate(obfClass);
-			packagedClassEntries.put(deobfClass.getPackageName(), obfClass);
-		}
-
-		// build the class nodes
-		for (String packageName : packagedClassEntries.keySet()) {
-			// sort the class entries
-			List<ClassEntry> classEntriesInPackage = Lists.newArrayList(packagedClassEntries.get(packageName));
-			classEntriesInPackage.sort((o1, o2) -> comparator.compare(translator.translate(o1), translator.translate(o2)));
-
-			// create the nodes in order
-			for (ClassEntry obfClass : classEntriesInPackage) {
-				ClassEntry deobfClass = translator.translate(obfClass);
-				ClassSelectorPackageNode node = packages.get(packageName);
-				ClassSelectorClassNode classNode = new ClassSelectorClassNode(obfClass, deobfClass);
-				displayedObfToDeobf.put(obfClass, deobfClass);
-				node.add(classNode);
+		Map<String, List<ClassSelectorClassNode>> packagedClassNodes = new HashMap<>();
+		for (Map.Entry<ClassEntry, ClassEntry> entry : obfToDeobf.entrySet()) {
+			ClassEntry deobfClass = entry.getValue();
+			packagedClassNodes.computeIfAbsent(deobfClass.getPackageName(), p -> new ArrayList<>())
+					.add(new ClassSelectorClassNode(entry.getKey(), deobfClass));
+			displayedObfToDeobf.put(entry.getKey(), deobfClass);
+		}
+
+		// create the package nodes with their classes in order, and sort the
+		// packages, whose names are only split once
+		Comparator<ClassSelectorClassNode> classNodeComparator = Comparator.comparing(ClassSelectorClassNode::getClassEntry, comparator);
+		List<ClassSelectorPackageNode> packageNodes = new ArrayList<>(packagedClassNodes.size());
+		for (Map.Entry<String, List<ClassSelectorClassNode>> packaged : packagedClassNodes.entrySet()) {
+			ClassSelectorPackageNode packageNode = new ClassSelectorPackageNode(packaged.getKey());
+			packaged.getValue().sort(classNodeComparator);
+			for (ClassSelectorClassNode classNode : packaged.getValue()) {
+				packageNode.add(classNode);
 			}
+			packageNodes.add(packageNode);
+		}
+		packageNodes.sort(PACKAGE_COMPARATOR);
+
+		// create the rootNodes node
+		rootNodes = new DefaultMutableTreeNode();
+		for (ClassSelectorPackageNode packageNode : packageNodes) {
+			rootNodes.add(packageNode);
 		}
 
 		// finally, update the tree control
@@ -497,7 +514,10 @@ public class ClassSelector extends JTree {
 	}
 
 	public void insertNode(ClassEntry obfEntry) {
-		ClassEntry deobfEntry = controller.project.getMapper().deobfuscate(obfEntry);
+		insertNode(obfEntry, controller.project.getMapper().deobfuscate(obfEntry));
+	}
+
+	private void insertNode(ClassEntry obfEntry, ClassEntry deobfEntry) {
 		ClassSelectorPackageNode packageNode = getOrCreatePackage(deobfEntry);
 
 		DefaultTreeModel model = (DefaultTreeModel) getModel();
@@ -513,28 +533,36 @@ public class ClassSelector extends JTree {
 	}
 
 	private int getPlacementIndex(ClassSelectorPackageNode newPackageNode, ClassSelectorClassNode classNode) {
-		List<ClassSelectorClassNode> classNodes = classNodes(newPackageNode);
-		classNodes.add(classNode);
-		classNodes.sort((a, b) -> comparator.compare(a.getClassEntry(), b.getClassEntry()));
-		for (int i = 0; i < classNodes.size(); i++)
-			if (classNodes.get(i) == classNode)
-				return i;
+		// the children are sorted, so the index is found by a binary search
+		int low = 0;
+		int high = newPackageNode.getChildCount();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			ClassSelectorClassNode child = (ClassSelectorClassNode) newPackageNode.getChildAt(middle);
+			if (comparator.compare(child.getClassEntry(), classNode.getClassEntry()) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
 
-		return 0;
+		return low;
 	}
 
 	private int getPlacementIndex(ClassSelectorPackageNode newPackageNode) {
-		List<ClassSelectorPackageNode> packageNodes = packageNodes();
-		if (!packageNodes.contains(newPackageNode)) {
-			packageNodes.add(newPackageNode);
-			packageNodes.sort(Comparator.comparing(ClassSelectorPackageNode::toString));
+		TreeNode root = (TreeNode) getModel().getRoot();
+		int low = 0;
+		int high = root.getChildCount();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (PACKAGE_COMPARATOR.compare((ClassSelectorPackageNode) root.getChildAt(middle), newPackageNode) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
 		}
 
-		for (int i = 0; i < packageNodes.size(); i++)
-			if (packageNodes.get(i) == newPackageNode)
-				return i;
-
-		return 0;
+		return low;
 	}
 
 	public interface ClassSelectionListener {
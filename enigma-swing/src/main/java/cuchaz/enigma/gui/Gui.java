@@ -23,8 +23,11 @@ import java.util.function.Function;
 
 import javax.annotation.Nullable;
 import javax.swing.*;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.ExpandVetoException;
 import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 
@@ -34,6 +37,7 @@ import com.google.common.collect.Lists;
 import cuchaz.enigma.Enigma;
 import cuchaz.enigma.EnigmaProfile;
 import cuchaz.enigma.analysis.*;
+import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.classhandle.ClassHandle;
 import cuchaz.enigma.gui.config.Themes;
 import cuchaz.enigma.gui.config.UiConfig;
@@ -264,6 +268,21 @@ public class Gui implements LanguageChangeListener {
 				}
 			}
 		});
+		callsTree.addTreeWillExpandListener(new TreeWillExpandListener() {
+			@Override
+			public void treeWillExpand(TreeExpansionEvent event) throws ExpandVetoException {
+				// the calls are loaded when their node is first expanded, which
+				// is then expanded again once they're loaded
+				if (event.getPath().getLastPathComponent() instanceof AbstractReferenceTreeNode<?, ?> node && !node.isLoaded()) {
+					loadCalls(event.getPath(), node);
+					throw new ExpandVetoException(event);
+				}
+			}
+
+			@Override
+			public void treeWillCollapse(TreeExpansionEvent event) {
+			}
+		});
 		tokens = new JList<>();
 		tokens.setCellRenderer(new TokenListCellRenderer(controller));
 		tokens.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -732,6 +751,22 @@ public class Gui implements LanguageChangeListener {
 		redraw();
 	}
 
+	private void loadCalls(TreePath path, AbstractReferenceTreeNode<?, ?> node) {
+		DefaultTreeModel model = (DefaultTreeModel) callsTree.getModel();
+		JarIndex index = this.controller.project.getJarIndex();
+
+		CompletableFuture.supplyAsync(() -> node.loadChildren(index)).thenAcceptAsync(children -> {
+			// the calls tree may show other calls by now
+			if (callsTree.getModel() != model || node.isLoaded()) {
+				return;
+			}
+
+			node.setChildren(children);
+			model.nodeStructureChanged(node);
+			callsTree.expandPath(path);
+		}, SwingUtilities::invokeLater);
+	}
+
 	public void toggleMapping(EditorPanel editor) {
 		EntryReference<Entry<?>, Entry<?>> cursorReference = editor.getCursorReference();
 		if (cursorReference == null) return;
@@ -847,38 +882,27 @@ public class Gui implements LanguageChangeListener {
 		moveClassTree(obfEntry, oldEntry == null, newEntry == null);
 	}
 
-	// TODO: getExpansionState will *not* actually update itself based on name changes!
 	public void moveClassTree(Entry<?> obfEntry, boolean isOldOb, boolean isNewOb) {
 		ClassEntry classEntry = obfEntry.getContainingClass();
 
-		List<ClassSelector.StateEntry> stateDeobf = this.deobfPanel.deobfClasses.getExpansionState(this.deobfPanel.deobfClasses);
-		List<ClassSelector.StateEntry> stateObf = this.obfPanel.obfClasses.getExpansionState(this.obfPanel.obfClasses);
-
+		// the selectors only update the nodes of the moved class, which keeps
+		// the expansion state of the trees
 		// Ob -> deob
 		if (!isNewOb) {
 			this.deobfPanel.deobfClasses.moveClassIn(classEntry);
 			this.obfPanel.obfClasses.moveClassOut(classEntry);
-			this.deobfPanel.deobfClasses.reload();
-			this.obfPanel.obfClasses.reload();
 		}
 		// Deob -> ob
 		else if (!isOldOb) {
 			this.obfPanel.obfClasses.moveClassIn(classEntry);
 			this.deobfPanel.deobfClasses.moveClassOut(classEntry);
-			this.deobfPanel.deobfClasses.reload();
-			this.obfPanel.obfClasses.reload();
 		}
 		// Local move
 		else if (isOldOb) {
 			this.obfPanel.obfClasses.moveClassIn(classEntry);
-			this.obfPanel.obfClasses.reload();
 		} else {
 			this.deobfPanel.deobfClasses.moveClassIn(classEntry);
-			this.deobfPanel.deobfClasses.reload();
 		}
-
-		this.deobfPanel.deobfClasses.restoreExpansionState(this.deobfPanel.deobfClasses, stateDeobf);
-		this.obfPanel.obfClasses.restoreExpansionState(this.obfPanel.obfClasses, stateObf);
 	}
 
 	public ObfPanel getObfPanel() {
@@ -16,6 +16,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
@@ -33,7 +34,6 @@ import cuchaz.enigma.Enigma;
 import cuchaz.enigma.EnigmaProfile;
 import cuchaz.enigma.EnigmaProject;
 import cuchaz.enigma.analysis.*;
-import cuchaz.enigma.api.service.ObfuscationTestService;
 import cuchaz.enigma.classhandle.ClassHandle;
 import cuchaz.enigma.classhandle.ClassHandleProvider;
 import cuchaz.enigma.classprovider.ClasspathClassProvider;
@@ -45,6 +45,7 @@ import cuchaz.enigma.gui.stats.StatsGenerator;
 import cuchaz.enigma.gui.stats.StatsMember;
 import cuchaz.enigma.gui.util.History;
 import cuchaz.enigma.network.*;
+import cuchaz.enigma.network.packet.EntryChangeBatchC2SPacket;
 import cuchaz.enigma.network.packet.EntryChangeC2SPacket;
 import cuchaz.enigma.network.packet.LoginC2SPacket;
 import cuchaz.enigma.network.packet.Packet;
@@ -58,6 +59,7 @@ import cuchaz.enigma.translation.mapping.serde.MappingFormat;
 import cuchaz.enigma.translation.mapping.serde.MappingParseException;
 import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
 import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
@@ -74,6 +76,7 @@ public class GuiController implements ClientPacketHandler {
 
 	public EnigmaProject project;
 	private IndexTreeBuilder indexTreeBuilder;
+	private StatsGenerator statsGenerator;
 
 	private Path loadedMappingPath;
 	private MappingFormat loadedMappingFormat;
@@ -84,6 +87,10 @@ public class GuiController implements ClientPacketHandler {
 
 	private EnigmaClient client;
 	private EnigmaServer server;
+	private EntryTree<EntryMapping> pendingMappings;
+	private final MappingsVersionTracker mappingsVersion = new MappingsVersionTracker();
+	private int serverProtocolVersion;
+	private final List<EntryChange<?>> outgoingChanges = new ArrayList<>();
 
 	public GuiController(Gui gui, EnigmaProfile profile) {
 		this.gui = gui;
@@ -99,9 +106,12 @@ public class GuiController implements ClientPacketHandler {
 	public CompletableFuture<Void> openJar(final Path jarPath) {
 		this.gui.onStartOpenJar();
 
+		mappingsVersion.reset();
+
 		return ProgressDialog.runOffThread(gui.getFrame(), progress -> {
 			project = enigma.openJar(jarPath, new ClasspathClassProvider(), progress);
 			indexTreeBuilder = new IndexTreeBuilder(project.getJarIndex());
+			statsGenerator = new StatsGenerator(project);
 			chp = new ClassHandleProvider(project, UiConfig.getDecompiler().service);
 			SwingUtilities.invokeLater(() -> {
 				gui.onFinishOpenJar(jarPath.getFileName().toString());
@@ -114,6 +124,7 @@ public class GuiController implements ClientPacketHandler {
 		this.chp.destroy();
 		this.chp = null;
 		this.project = null;
+		this.statsGenerator = null;
 		this.gui.onCloseJar();
 	}
 
@@ -121,6 +132,7 @@ public class GuiController implements ClientPacketHandler {
 		if (project == null) return CompletableFuture.completedFuture(null);
 
 		gui.setMappingsFile(path);
+		mappingsVersion.reset();
 
 		return ProgressDialog.runOffThread(gui.getFrame(), progress -> {
 			try {
@@ -149,6 +161,22 @@ public class GuiController implements ClientPacketHandler {
 		chp.invalidateJavadoc();
 	}
 
+	@Override
+	public void receiveMappingsChunk(EntryTree<EntryMapping> mappings, boolean last) {
+		if (pendingMappings == null) {
+			pendingMappings = new HashEntryTree<>();
+		}
+
+		for (EntryTreeNode<EntryMapping> node : mappings) {
+			pendingMappings.insert(node.getEntry(), node.getValue());
+		}
+
+		if (last) {
+			openMappings(pendingMappings);
+			pendingMappings = null;
+		}
+	}
+
 	public CompletableFuture<Void> saveMappings(Path path) {
 		return saveMappings(path, loadedMappingFormat);
 	}
@@ -189,6 +217,7 @@ public class GuiController implements ClientPacketHandler {
 		if (project == null) return;
 
 		project.setMappings(null);
+		mappingsVersion.reset();
 
 		this.gui.setMappingsFile(null);
 		refreshClasses();
@@ -227,15 +256,7 @@ public class GuiController implements ClientPacketHandler {
 		if (project == null) return CompletableFuture.completedFuture(null);
 
 		return ProgressDialog.runOffThread(this.gui.getFrame(), progress -> {
-			EnigmaProject.JarExport jar = project.exportRemappedJar(progress);
-			jar.decompileStream(progress, chp.getDecompilerService(), EnigmaProject.DecompileErrorStrategy.TRACE_AS_SOURCE)
-					.forEach(source -> {
-						try {
-							source.writeTo(source.resolvePath(path));
-						} catch (IOException e) {
-							e.printStackTrace();
-						}
-					});
+			project.exportRemappedSources(path, progress, chp.getDecompilerService(), EnigmaProject.DecompileErrorStrategy.TRACE_AS_SOURCE);
 		});
 	}
 
@@ -387,15 +408,7 @@ public class GuiController implements ClientPacketHandler {
 			}
 
 			ClassEntry deobfEntry = mapper.deobfuscate(entry);
-
-			List<ObfuscationTestService> obfService = enigma.getServices().get(ObfuscationTestService.TYPE);
-			boolean obfuscated = deobfEntry.equals(entry);
-
-			if (obfuscated && !obfService.isEmpty()) {
-				if (obfService.stream().anyMatch(service -> service.testDeobfuscated(entry))) {
-					obfuscated = false;
-				}
-			}
+			boolean obfuscated = deobfEntry.equals(entry) && !project.isDeobfuscatedByServices(entry);
 
 			if (obfuscated) {
 				obfClasses.add(entry);
@@ -443,21 +456,21 @@ public class GuiController implements ClientPacketHandler {
 	public ClassReferenceTreeNode getClassReferences(ClassEntry entry) {
 		Translator deobfuscator = project.getMapper().getDeobfuscator();
 		ClassReferenceTreeNode rootNode = new ClassReferenceTreeNode(deobfuscator, entry);
-		rootNode.load(project.getJarIndex(), true);
+		rootNode.load(project.getJarIndex(), false);
 		return rootNode;
 	}
 
 	public FieldReferenceTreeNode getFieldReferences(FieldEntry entry) {
 		Translator translator = project.getMapper().getDeobfuscator();
 		FieldReferenceTreeNode rootNode = new FieldReferenceTreeNode(translator, entry);
-		rootNode.load(project.getJarIndex(), true);
+		rootNode.load(project.getJarIndex(), false);
 		return rootNode;
 	}
 
 	public MethodReferenceTreeNode getMethodReferences(MethodEntry entry, boolean recursive) {
 		Translator translator = project.getMapper().getDeobfuscator();
 		MethodReferenceTreeNode rootNode = new MethodReferenceTreeNode(translator, entry);
-		rootNode.load(project.getJarIndex(), true, recursive);
+		rootNode.load(project.getJarIndex(), false, recursive);
 		return rootNode;
 	}
 
@@ -471,6 +484,23 @@ public class GuiController implements ClientPacketHandler {
 		return vc.canProceed();
 	}
 
+	@Override
+	public boolean applyChangesFromServer(List<EntryChange<?>> changes) {
+		ValidationContext vc = new ValidationContext();
+		vc.setActiveElement(PrintValidatable.INSTANCE);
+		for (EntryChange<?> change : changes) {
+			this.applyChange0(vc, change);
+		}
+		gui.showStructure(gui.getActiveEditor());
+
+		return vc.canProceed();
+	}
+
+	@Override
+	public void setServerProtocolVersion(int protocolVersion) {
+		serverProtocolVersion = protocolVersion;
+	}
+
 	public void validateChange(ValidationContext vc, EntryChange<?> change) {
 		if (change.getDeobfName().isSet()) {
 			EntryValidation.validateRename(vc, this.project, change.getTarget(), change.getDeobfName().getNewValue());
@@ -485,7 +515,53 @@ public class GuiController implements ClientPacketHandler {
 		this.applyChange0(vc, change);
 		gui.showStructure(gui.getActiveEditor());
 		if (!vc.canProceed()) return;
-		this.sendPacket(new EntryChangeC2SPacket(change));
+
+		if (client == null) {
+			// local changes can't be merged into a delta resync
+			mappingsVersion.reset();
+		}
+
+		this.sendChange(change);
+	}
+
+	/**
+	 * Sends a change to the server once the current event was handled, so
+	 * that the changes of bulk operations are sent in a single packet.
+	 */
+	private void sendChange(EntryChange<?> change) {
+		if (client == null) return;
+
+		if (outgoingChanges.isEmpty()) {
+			SwingUtilities.invokeLater(this::flushChanges);
+		}
+		outgoingChanges.add(change);
+	}
+
+	private void flushChanges() {
+		if (outgoingChanges.size() > 1 && serverProtocolVersion >= EnigmaServer.BATCH_PROTOCOL_VERSION) {
+			// the server only accepts packets up to a limited size
+			EntryChangeBatchC2SPacket.split(List.copyOf(outgoingChanges)).forEach(this::sendChangePacket);
+		} else {
+			for (EntryChange<?> change : outgoingChanges) {
+				this.sendChangePacket(new EntryChangeC2SPacket(change));
+			}
+		}
+		outgoingChanges.clear();
+	}
+
+	private void sendChangePacket(Packet<ServerPacketHandler> packet) {
+		this.sendPacket(packet);
+		mappingsVersion.changePacketSent();
+	}
+
+	@Override
+	public void setMappingsVersion(MappingsVersion version) {
+		mappingsVersion.setVersion(version);
+	}
+
+	@Override
+	public void acknowledgeChangePacket() {
+		mappingsVersion.changePacketAcknowledged();
 	}
 
 	private void applyChange0(ValidationContext vc, EntryChange<?> change) {
@@ -502,8 +578,14 @@ public class GuiController implements ClientPacketHandler {
 			this.gui.moveClassTree(target, prev.targetName() == null, mapping.targetName() == null);
 		}
 
+		if (renamed && this.gui.searchDialog != null) {
+			this.gui.searchDialog.updateEntry(target);
+		}
+
 		if (!Objects.equals(prev.targetName(), mapping.targetName())) {
-			this.chp.invalidateMapped();
+			this.chp.invalidateMappedReferences(target);
+			this.project.invalidateObfuscationStatus(target);
+			this.statsGenerator.invalidate(target);
 		}
 
 		if (!Objects.equals(prev.javadoc(), mapping.javadoc())) {
@@ -514,7 +596,7 @@ public class GuiController implements ClientPacketHandler {
 
 	public void openStats(Set<StatsMember> includedMembers, String topLevelPackage, boolean includeSynthetic) {
 		ProgressDialog.runOffThread(gui.getFrame(), progress -> {
-			String data = new StatsGenerator(project).generate(progress, includedMembers, topLevelPackage, includeSynthetic).getTreeJson();
+			String data = statsGenerator.generate(progress, includedMembers, topLevelPackage, includeSynthetic).getTreeJson();
 
 			try {
 				File statsFile = File.createTempFile("stats", ".html");
@@ -539,6 +621,10 @@ public class GuiController implements ClientPacketHandler {
 		}
 	}
 
+	public StatsGenerator getStatsGenerator() {
+		return statsGenerator;
+	}
+
 	public ClassHandleProvider getClassHandleProvider() {
 		return chp;
 	}
@@ -552,13 +638,16 @@ public class GuiController implements ClientPacketHandler {
 	}
 
 	public void createClient(String username, String ip, int port, char[] password) throws IOException {
+		serverProtocolVersion = 0;
 		client = new EnigmaClient(this, ip, port);
 		client.connect();
-		client.sendPacket(new LoginC2SPacket(project.getJarChecksum(), password, username));
+		client.sendPacket(new LoginC2SPacket(project.getJarChecksum(), password, username, mappingsVersion.getVersion()));
 		gui.setConnectionState(ConnectionState.CONNECTED);
 	}
 
 	public void createServer(int port, char[] password) throws IOException {
+		mappingsVersion.reset();
+		serverProtocolVersion = 0;
 		server = new IntegratedEnigmaServer(project.getJarChecksum(), password, EntryRemapper.mapped(project.getJarIndex(), new HashEntryTree<>(project.getMapper().getObfToDeobf())), port);
 		server.start();
 		client = new EnigmaClient(this, "127.0.0.1", port);
@@ -585,6 +674,11 @@ public class GuiController implements ClientPacketHandler {
 			if (reason != null) {
 				JOptionPane.showMessageDialog(gui.getFrame(), I18n.translate(reason), I18n.translate("disconnect.disconnected"), JOptionPane.INFORMATION_MESSAGE);
 			}
+			pendingMappings = null;
+			// the server may lack changes which weren't sent or acknowledged, so they can't be resynced
+			mappingsVersion.disconnected(!outgoingChanges.isEmpty());
+			outgoingChanges.clear();
+			serverProtocolVersion = 0;
 			gui.setConnectionState(ConnectionState.NOT_CONNECTED);
 		});
 	}
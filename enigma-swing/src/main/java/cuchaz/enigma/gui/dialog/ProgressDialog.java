@@ -94,7 +94,7 @@ public class ProgressDialog implements ProgressListener, AutoCloseable {
 			return progress;
 		}, SwingUtilities::invokeLater).thenAcceptAsync(progress -> {
 			try (progress) {
-				runnable.run(progress);
+				runnable.run(ProgressListener.throttled(progress));
 			} catch (Exception e) {
 				throw new RuntimeException(e);
 			}
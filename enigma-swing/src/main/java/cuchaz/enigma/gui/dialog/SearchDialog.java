@@ -19,6 +19,7 @@ import java.awt.event.*;
 import java.util.*;
 
 import javax.swing.*;
+import javax.swing.Timer;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 
@@ -29,6 +30,7 @@ import cuchaz.enigma.gui.util.AbstractListCellRenderer;
 import cuchaz.enigma.gui.util.GuiUtil;
 import cuchaz.enigma.gui.util.ScaleUtil;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 import cuchaz.enigma.translation.representation.entry.ParentedEntry;
@@ -38,19 +40,25 @@ import cuchaz.enigma.gui.search.SearchUtil;
 
 public class SearchDialog {
 
+	private static final int MAX_RESULTS = 1000;
+	private static final int UPDATE_INTERVAL_MILLIS = 1000 / 60;
+
 	private final JTextField searchField;
-	private DefaultListModel<SearchEntryImpl> classListModel;
+	private final DefaultListModel<SearchEntryImpl> classListModel;
 	private final JList<SearchEntryImpl> classList;
 	private final JDialog dialog;
+	// shows the results of the current search once per frame
+	private final Timer updateTimer;
 
 	private final Gui parent;
 	private final SearchUtil<SearchEntryImpl> su;
-	private SearchUtil.SearchControl currentSearch;
+	private SearchUtil.SearchControl<SearchEntryImpl> currentSearch;
 
 	public SearchDialog(Gui parent) {
 		this.parent = parent;
 
 		su = new SearchUtil<>();
+		updateTimer = new Timer(UPDATE_INTERVAL_MILLIS, e -> showResults());
 
 		dialog = new JDialog(parent.getFrame(), I18n.translate("menu.search"), true);
 		JPanel contentPane = new JPanel();
@@ -169,6 +177,22 @@ public class SearchDialog {
 		dialog.setVisible(true);
 	}
 
+	/**
+	 * Updates the names an entry is found by after it was renamed, while the
+	 * dialog is open. A closed dialog collects the entries when it's shown.
+	 */
+	public void updateEntry(Entry<?> obfEntry) {
+		if (!dialog.isVisible() || !(obfEntry instanceof ParentedEntry<?> parentedEntry)) {
+			return;
+		}
+
+		SearchEntryImpl entry = SearchEntryImpl.from(parentedEntry, parent.getController());
+		if (su.remove(entry)) {
+			su.add(entry);
+			updateList();
+		}
+	}
+
 	private void openSelected() {
 		SearchEntryImpl selectedValue = classList.getSelectedValue();
 		if (selectedValue != null) {
@@ -197,20 +221,38 @@ public class SearchDialog {
 
 	private void close() {
 		dialog.setVisible(false);
+		updateTimer.stop();
 	}
 
 	// Updates the list of class names
 	private void updateList() {
 		if (currentSearch != null) currentSearch.stop();
 
-		DefaultListModel<SearchEntryImpl> classListModel = new DefaultListModel<>();
-		this.classListModel = classListModel;
-		classList.setModel(classListModel);
+		currentSearch = su.asyncSearch(searchField.getText(), MAX_RESULTS);
+		showResults();
+		updateTimer.start();
+	}
+
+	private void showResults() {
+		// checked first, so that the results of the last chunk aren't missed
+		boolean finished = currentSearch.isFinished();
+		List<SearchEntryImpl> results = currentSearch.pollResults();
+		if (results != null) {
+			SearchEntryImpl selected = classList.getSelectedValue();
+			classListModel.clear();
+			classListModel.addAll(results);
+			if (selected != null) {
+				classList.setSelectedValue(selected, false);
+			}
+		}
 
-		currentSearch = su.asyncSearch(searchField.getText(), (idx, e) -> SwingUtilities.invokeLater(() -> classListModel.insertElementAt(e, idx)));
+		if (finished) {
+			updateTimer.stop();
+		}
 	}
 
 	public void dispose() {
+		updateTimer.stop();
 		dialog.dispose();
 	}
 
@@ -238,6 +280,16 @@ public class SearchDialog {
 			return obf.getFullName();
 		}
 
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof SearchEntryImpl other && obf.equals(other.obf);
+		}
+
+		@Override
+		public int hashCode() {
+			return obf.hashCode();
+		}
+
 		@Override
 		public String toString() {
 			return String.format("SearchEntryImpl { obf: %s, deobf: %s }", obf, deobf);
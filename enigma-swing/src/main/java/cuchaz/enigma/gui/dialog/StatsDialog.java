@@ -22,7 +22,7 @@ public class StatsDialog {
 
 	public static void show(Gui gui) {
 		ProgressDialog.runOffThread(gui.getFrame(), listener -> {
-			final StatsGenerator statsGenerator = new StatsGenerator(gui.getController().project);
+			final StatsGenerator statsGenerator = gui.getController().getStatsGenerator();
 			final Map<StatsMember, StatsResult> results = new HashMap<>();
 			for (StatsMember member : StatsMember.values()) {
 				results.put(member, statsGenerator.generate(listener, Collections.singleton(member), "", false));
@@ -0,0 +1,104 @@
+package cuchaz.enigma.gui.highlight;
+
+import java.awt.Graphics;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableSet;
+
+import javax.annotation.Nullable;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+
+import cuchaz.enigma.source.RenamableTokenType;
+import cuchaz.enigma.source.Token;
+
+/**
+ * A highlighter which paints the renamable tokens of a source in addition to
+ * the regular highlights. Instead of keeping one highlight per token, the
+ * tokens of the painted lines are looked up in the token sets whenever the
+ * text is painted, so painting only depends on the size of the view, not on
+ * the number of tokens.
+ */
+public class TokenHighlighter extends DefaultHighlighter {
+	private JTextComponent component;
+	private Map<RenamableTokenType, ? extends NavigableSet<Token>> tokens = Collections.emptyMap();
+	private TokenPainterProvider painterProvider = (type, token) -> null;
+
+	@Override
+	public void install(JTextComponent component) {
+		super.install(component);
+		this.component = component;
+	}
+
+	@Override
+	public void deinstall(JTextComponent component) {
+		super.deinstall(component);
+		this.component = null;
+	}
+
+	/**
+	 * Sets the tokens to paint.
+	 *
+	 * @param tokens          the tokens by type, sorted by their start
+	 * @param painterProvider picks the painter of each token, when it's painted
+	 */
+	public void setTokens(Map<RenamableTokenType, ? extends NavigableSet<Token>> tokens, TokenPainterProvider painterProvider) {
+		this.tokens = tokens;
+		this.painterProvider = painterProvider;
+		if (component != null) {
+			component.repaint();
+		}
+	}
+
+	@Override
+	public void paint(Graphics g) {
+		paintTokens(g);
+		super.paint(g);
+	}
+
+	private void paintTokens(Graphics g) {
+		Rectangle clip = g.getClipBounds();
+		if (component == null || clip == null || tokens.isEmpty()) {
+			return;
+		}
+
+		// tokens never span lines, so all tokens on the lines in the clip are painted
+		Element lines = component.getDocument().getDefaultRootElement();
+		int firstOffset = component.viewToModel2D(new Point(clip.x, clip.y));
+		int lastOffset = component.viewToModel2D(new Point(clip.x + clip.width, clip.y + clip.height));
+		if (firstOffset < 0 || lastOffset < 0) {
+			return;
+		}
+
+		int start = lines.getElement(lines.getElementIndex(firstOffset)).getStartOffset();
+		int end = lines.getElement(lines.getElementIndex(lastOffset)).getEndOffset();
+		Token from = new Token(start, start, null);
+		Token to = new Token(end, end, null);
+
+		Rectangle allocation = component.getBounds();
+		Insets insets = component.getInsets();
+		allocation.x = insets.left;
+		allocation.y = insets.top;
+		allocation.width -= insets.left + insets.right;
+		allocation.height -= insets.top + insets.bottom;
+
+		for (Map.Entry<RenamableTokenType, ? extends NavigableSet<Token>> entry : tokens.entrySet()) {
+			for (Token token : entry.getValue().subSet(from, true, to, true)) {
+				HighlightPainter painter = painterProvider.getPainter(entry.getKey(), token);
+				if (painter != null) {
+					painter.paint(g, token.start, token.end, allocation, component);
+				}
+			}
+		}
+	}
+
+	@FunctionalInterface
+	public interface TokenPainterProvider {
+		@Nullable
+		HighlightPainter getPainter(RenamableTokenType type, Token token);
+	}
+}
@@ -16,15 +16,28 @@ import javax.swing.tree.DefaultMutableTreeNode;
 public class ClassSelectorPackageNode extends DefaultMutableTreeNode {
 
 	private String packageName;
+	private String[] packagePath;
 
 	public ClassSelectorPackageNode(String packageName) {
 		this.packageName = packageName != null ? packageName : "(none)";
+		this.packagePath = splitPackageName(packageName);
 	}
 
 	public String getPackageName() {
 		return packageName;
 	}
 
+	/**
+	 * Gets the parts of the package name, which is empty for the default package.
+	 */
+	public String[] getPackagePath() {
+		return packagePath;
+	}
+
+	private static String[] splitPackageName(String packageName) {
+		return packageName != null ? packageName.split("/") : new String[0];
+	}
+
 	@Override
 	public Object getUserObject() {
 		return packageName;
@@ -32,8 +45,10 @@ public class ClassSelectorPackageNode extends DefaultMutableTreeNode {
 
 	@Override
 	public void setUserObject(Object userObject) {
-		if (userObject instanceof String)
+		if (userObject instanceof String) {
 			this.packageName = (String) userObject;
+			this.packagePath = splitPackageName(packageName);
+		}
 		super.setUserObject(userObject);
 	}
 
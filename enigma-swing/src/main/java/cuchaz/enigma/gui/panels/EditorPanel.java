@@ -5,13 +5,19 @@ import java.awt.event.*;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import javax.annotation.Nullable;
 import javax.swing.*;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
+import javax.swing.text.EditorKit;
 import javax.swing.text.Highlighter.HighlightPainter;
+import javax.swing.text.PlainDocument;
 
 import de.sciss.syntaxpane.DefaultSyntaxKit;
 
@@ -32,10 +38,12 @@ import cuchaz.enigma.gui.events.EditorActionListener;
 import cuchaz.enigma.gui.events.ThemeChangeListener;
 import cuchaz.enigma.gui.highlight.BoxHighlightPainter;
 import cuchaz.enigma.gui.highlight.SelectionHighlightPainter;
+import cuchaz.enigma.gui.highlight.TokenHighlighter;
 import cuchaz.enigma.gui.util.GridBagConstraintsBuilder;
 import cuchaz.enigma.gui.util.ScaleUtil;
 import cuchaz.enigma.source.DecompiledClassSource;
 import cuchaz.enigma.source.RenamableTokenType;
+import cuchaz.enigma.source.SourceEdit;
 import cuchaz.enigma.source.Token;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
 import cuchaz.enigma.translation.mapping.EntryResolver;
@@ -46,9 +54,13 @@ import cuchaz.enigma.utils.I18n;
 import cuchaz.enigma.utils.Result;
 
 public class EditorPanel {
+	// sources at least this long get their document built off the EDT, as
+	// lexing them would stall the UI
+	private static final int BACKGROUND_DOCUMENT_LENGTH = 64 * 1024;
 
 	private final JPanel ui = new JPanel();
 	private final JEditorPane editor = new JEditorPane();
+	private final TokenHighlighter tokenHighlighter = new TokenHighlighter();
 	private final JScrollPane editorScrollPane = new JScrollPane(this.editor);
 	private final EditorPopupMenu popupMenu;
 
@@ -83,6 +95,8 @@ public class EditorPanel {
 	private ClassHandle classHandle;
 	private DecompiledClassSource source;
 	private boolean settingSource;
+	// incremented for every new source, so documents built for outdated sources are dropped
+	private int sourceGeneration;
 
 	public EditorPanel(Gui gui) {
 		this.gui = gui;
@@ -91,6 +105,7 @@ public class EditorPanel {
 		this.editor.setEditable(false);
 		this.editor.setSelectionColor(new Color(31, 46, 90));
 		this.editor.setCaret(new BrowserCaret());
+		this.editor.setHighlighter(this.tokenHighlighter);
 		this.editor.setFont(ScaleUtil.getFont(this.editor.getFont().getFontName(), Font.PLAIN, this.fontSize));
 		this.editor.addCaretListener(event -> onCaretMove(event.getDot(), this.mouseIsPressed));
 		this.editor.setCaretColor(UiConfig.getCaretColor());
@@ -410,8 +425,54 @@ public class EditorPanel {
 	}
 
 	public void setSource(DecompiledClassSource source) {
+		int generation = ++this.sourceGeneration;
+		if (source == null) {
+			this.setDisplayMode(DisplayMode.SUCCESS);
+			return;
+		}
+
+		boolean sameClass = this.source != null && this.source.getEntry().equals(source.getEntry());
+		List<SourceEdit> edits = sameClass ? source.getEditsFrom(this.source) : null;
+		if (edits != null || source.toString().length() < BACKGROUND_DOCUMENT_LENGTH) {
+			this.setSource0(source, edits, null);
+			return;
+		}
+
+		// the document is lexed while it's built, so build it off the EDT and
+		// swap it in at once, the previous source stays shown until then.
+		// The lexer of a kit is shared by all documents it creates and can't
+		// run on two threads, so the document is built by a kit of its own
+		EditorKit kit = JEditorPane.createEditorKitForContentType(this.editor.getContentType());
+		CompletableFuture.supplyAsync(() -> buildDocument(kit, source.toString()))
+				.thenAcceptAsync(document -> {
+					if (generation == this.sourceGeneration) {
+						this.setSource0(source, null, document);
+					}
+				}, SwingUtilities::invokeLater)
+				.exceptionally(t -> {
+					Throwable cause = t instanceof CompletionException ? t.getCause() : t;
+					SwingUtilities.invokeLater(() -> {
+						if (generation == this.sourceGeneration) {
+							this.displayError(ClassHandleError.decompile(cause));
+						}
+					});
+					return null;
+				});
+	}
+
+	private static Document buildDocument(EditorKit kit, String text) {
+		Document document = kit.createDefaultDocument();
+		try {
+			document.insertString(0, text, null);
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return document;
+	}
+
+	private void setSource0(DecompiledClassSource source, @Nullable List<SourceEdit> edits, @Nullable Document document) {
 		this.setDisplayMode(DisplayMode.SUCCESS);
-		if (source == null) return;
 		try {
 			this.settingSource = true;
 
@@ -440,7 +501,12 @@ public class EditorPanel {
 
 			this.source = source;
 			this.editor.getHighlighter().removeAllHighlights();
-			this.editor.setText(source.toString());
+			if (document != null) {
+				document.putProperty(PlainDocument.tabSizeAttribute, this.editor.getDocument().getProperty(PlainDocument.tabSizeAttribute));
+				this.editor.setDocument(document);
+			} else if (edits == null || !this.applyEdits(edits)) {
+				this.editor.setText(source.toString());
+			}
 			if (this.source != null) {
 				this.editor.setCaretPosition(newCaretPos);
 			}
@@ -456,45 +522,48 @@ public class EditorPanel {
 		}
 	}
 
-	public void setHighlightedTokens(Map<RenamableTokenType, ? extends Collection<Token>> tokens) {
-		// remove any old highlighters
-		this.editor.getHighlighter().removeAllHighlights();
+	private boolean applyEdits(List<SourceEdit> edits) {
+		Document document = this.editor.getDocument();
 
-		if (this.boxHighlightPainters != null) {
-			BoxHighlightPainter proposedPainter = this.boxHighlightPainters.get(RenamableTokenType.PROPOSED);
+		try {
+			// edits refer to positions in the old text, so apply them back to front
+			for (ListIterator<SourceEdit> it = edits.listIterator(edits.size()); it.hasPrevious(); ) {
+				SourceEdit edit = it.previous();
+				document.remove(edit.start(), edit.length());
+				document.insertString(edit.start(), edit.replacement(), null);
+			}
+		} catch (BadLocationException e) {
+			return false;
+		}
 
-			for (RenamableTokenType type : tokens.keySet()) {
-				BoxHighlightPainter painter = this.boxHighlightPainters.get(type);
+		return true;
+	}
 
-				if (painter != null) {
-					for (Token token : tokens.get(type)) {
-						EntryReference<Entry<?>, Entry<?>> reference = this.getReference(token);
-						BoxHighlightPainter tokenPainter;
+	public void setHighlightedTokens(Map<RenamableTokenType, ? extends NavigableSet<Token>> tokens) {
+		// remove any old highlighters
+		this.editor.getHighlighter().removeAllHighlights();
 
-						if (reference != null) {
-							EditableType t = EditableType.fromEntry(reference.entry);
-							boolean editable = t == null || this.gui.isEditable(t);
-							tokenPainter = editable ? painter : proposedPainter;
-						} else {
-							tokenPainter = painter;
-						}
+		// the painters are picked when the tokens are painted, so only the
+		// visible tokens are looked up
+		this.tokenHighlighter.setTokens(tokens, (type, token) -> {
+			if (this.boxHighlightPainters == null) {
+				return null;
+			}
 
-						this.addHighlightedToken(token, tokenPainter);
-					}
-				}
+			BoxHighlightPainter painter = this.boxHighlightPainters.get(type);
+			if (painter == null) {
+				return null;
 			}
-		}
 
-		this.editor.validate();
-		this.editor.repaint();
-	}
+			EntryReference<Entry<?>, Entry<?>> reference = this.getReference(token);
+			if (reference != null) {
+				EditableType t = EditableType.fromEntry(reference.entry);
+				boolean editable = t == null || this.gui.isEditable(t);
+				return editable ? painter : this.boxHighlightPainters.get(RenamableTokenType.PROPOSED);
+			}
 
-	private void addHighlightedToken(Token token, HighlightPainter tokenPainter) {
-		try {
-			this.editor.getHighlighter().addHighlight(token.start, token.end, tokenPainter);
-		} catch (BadLocationException ex) {
-			throw new IllegalArgumentException(ex);
-		}
+			return painter;
+		});
 	}
 
 	public EntryReference<Entry<?>, Entry<?>> getCursorReference() {
@@ -0,0 +1,120 @@
+package cuchaz.enigma.gui.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * An index over the word components of the search entries, which narrows a
+ * search down to the entries that can match the search term at all.
+ *
+ * <p>A term matches an entry only if it can be split into prefixes of the
+ * entry's components, taken in order. So every character of the term occurs
+ * in the entry, and the term starts with the first character of a component.
+ * The index keeps the entries containing each character, and the entries
+ * having a component starting with each character, as bit sets over entry
+ * ids, and intersects them for the characters of the term.
+ */
+final class SearchIndex<T extends SearchEntry> {
+
+	private final List<SearchUtil.Entry<T>> entries = new ArrayList<>();
+	private final Map<T, Integer> ids = new HashMap<>();
+	private final Deque<Integer> freeIds = new ArrayDeque<>();
+	private final Map<Character, BitSet> characters = new HashMap<>();
+	private final Map<Character, BitSet> initials = new HashMap<>();
+
+	public void add(SearchUtil.Entry<T> entry) {
+		remove(entry.searchEntry);
+
+		int id = freeIds.isEmpty() ? entries.size() : freeIds.pop();
+		if (id == entries.size()) {
+			entries.add(entry);
+		} else {
+			entries.set(id, entry);
+		}
+		ids.put(entry.searchEntry, id);
+
+		for (char[][] name : entry.getUpperCaseComponents()) {
+			for (char[] component : name) {
+				if (component.length == 0) {
+					continue;
+				}
+
+				initials.computeIfAbsent(component[0], c -> new BitSet()).set(id);
+				for (char c : component) {
+					characters.computeIfAbsent(c, k -> new BitSet()).set(id);
+				}
+			}
+		}
+	}
+
+	public boolean remove(T searchEntry) {
+		Integer id = ids.remove(searchEntry);
+		if (id == null) {
+			return false;
+		}
+
+		// the entry is cleared from every posting rather than just its own,
+		// as there are only as many postings as distinct characters
+		characters.values().forEach(postings -> postings.clear(id));
+		initials.values().forEach(postings -> postings.clear(id));
+		entries.set(id, null);
+		freeIds.push(id);
+		return true;
+	}
+
+	public boolean contains(T searchEntry) {
+		return ids.containsKey(searchEntry);
+	}
+
+	public void clear() {
+		entries.clear();
+		ids.clear();
+		freeIds.clear();
+		characters.clear();
+		initials.clear();
+	}
+
+	/**
+	 * Passes every entry that may match the given term to the consumer. The
+	 * term must be upper-case, an empty term matches nothing.
+	 */
+	public void forEachCandidate(String ucTerm, Consumer<SearchUtil.Entry<T>> consumer) {
+		if (ucTerm.isEmpty()) {
+			return;
+		}
+
+		BitSet candidates = initials.get(ucTerm.charAt(0));
+		if (candidates == null) {
+			return;
+		}
+
+		candidates = (BitSet) candidates.clone();
+		for (int i = 0; i < ucTerm.length() && !candidates.isEmpty(); i++) {
+			BitSet postings = characters.get(ucTerm.charAt(i));
+			if (postings == null) {
+				return;
+			}
+
+			candidates.and(postings);
+		}
+
+		for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+			consumer.accept(entries.get(id));
+		}
+	}
+
+	/**
+	 * Gets every entry that may match the given term, see {@link #forEachCandidate(String, Consumer)}.
+	 */
+	public List<SearchUtil.Entry<T>> getCandidates(String ucTerm) {
+		List<SearchUtil.Entry<T>> candidates = new ArrayList<>();
+		forEachCandidate(ucTerm, candidates::add);
+		return candidates;
+	}
+}
@@ -3,41 +3,45 @@ package cuchaz.enigma.gui.search;
 import java.util.*;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.annotation.Nullable;
+
 import cuchaz.enigma.utils.Pair;
 
 public class SearchUtil<T extends SearchEntry> {
 
-	private final Map<T, Entry<T>> entries = new HashMap<>();
+	private static final int SEARCH_CHUNK_SIZE = 2048;
+
+	private final SearchIndex<T> index = new SearchIndex<>();
 	private final Map<String, Integer> hitCount = new HashMap<>();
 	private final Executor searchExecutor = Executors.newWorkStealingPool();
 
 	public void add(T entry) {
-		Entry<T> e = Entry.from(entry);
-		entries.put(entry, e);
+		index.add(Entry.from(entry));
 	}
 
 	public void add(Entry<T> entry) {
-		entries.put(entry.searchEntry, entry);
+		index.add(entry);
 	}
 
 	public void addAll(Collection<T> entries) {
-		this.entries.putAll(entries.parallelStream().collect(Collectors.toMap(e -> e, Entry::from)));
+		entries.parallelStream().map(Entry::from).collect(Collectors.toList()).forEach(index::add);
 	}
 
-	public void remove(T entry) {
-		entries.remove(entry);
+	/**
+	 * Removes an entry, for example to add it again after it was renamed.
+	 *
+	 * @return whether the entry was removed
+	 */
+	public boolean remove(T entry) {
+		return index.remove(entry);
 	}
 
 	public void clear() {
-		entries.clear();
+		index.clear();
 	}
 
 	public void clearHits() {
@@ -45,138 +49,165 @@ public class SearchUtil<T extends SearchEntry> {
 	}
 
 	public Stream<T> search(String term) {
-		return entries.values().parallelStream()
-				.map(e -> new Pair<>(e, e.getScore(term, hitCount.getOrDefault(e.searchEntry.getIdentifier(), 0))))
+		String ucTerm = term.toUpperCase(Locale.ROOT);
+		char[] ucTermChars = ucTerm.toCharArray();
+		return index.getCandidates(ucTerm).parallelStream()
+				.map(e -> new Pair<>(e, e.getScore(ucTermChars, hitCount.getOrDefault(e.searchEntry.getIdentifier(), 0))))
 				.filter(e -> e.b > 0)
 				.sorted(Comparator.comparingDouble(o -> -o.b))
 				.map(e -> e.a.searchEntry)
 				.sequential();
 	}
 
-	public SearchControl asyncSearch(String term, SearchResultConsumer<T> consumer) {
+	/**
+	 * Starts searching in the background. The entries which may match are
+	 * split into chunks, each of which is scored by a single task into its own
+	 * best results, which are then merged into the best results of the search.
+	 *
+	 * @param term       the search term
+	 * @param maxResults the maximum number of results to keep
+	 * @return the control of the search, which gives access to the results
+	 */
+	public SearchControl<T> asyncSearch(String term, int maxResults) {
 		Map<String, Integer> hitCount = new HashMap<>(this.hitCount);
-		Map<T, Entry<T>> entries = new HashMap<>(this.entries);
-		float[] scores = new float[entries.size()];
-		Lock scoresLock = new ReentrantLock();
-		AtomicInteger size = new AtomicInteger();
-		AtomicBoolean control = new AtomicBoolean(false);
-		AtomicInteger elapsed = new AtomicInteger();
-		for (Entry<T> value : entries.values()) {
+		String ucTerm = term.toUpperCase(Locale.ROOT);
+		char[] ucTermChars = ucTerm.toCharArray();
+		// only the entries which may match are scored
+		List<Entry<T>> entries = index.getCandidates(ucTerm);
+		AsyncSearch<T> search = new AsyncSearch<>(maxResults, (entries.size() + SEARCH_CHUNK_SIZE - 1) / SEARCH_CHUNK_SIZE);
+
+		for (int chunkStart = 0; chunkStart < entries.size(); chunkStart += SEARCH_CHUNK_SIZE) {
+			int start = chunkStart;
+			int end = Math.min(chunkStart + SEARCH_CHUNK_SIZE, entries.size());
 			searchExecutor.execute(() -> {
 				try {
-					if (control.get()) return;
-					float score = value.getScore(term, hitCount.getOrDefault(value.searchEntry.getIdentifier(), 0));
-					if (score <= 0) return;
-					score = -score; // sort descending
-					try {
-						scoresLock.lock();
-						if (control.get()) return;
-						int dataSize = size.getAndIncrement();
-						int index = Arrays.binarySearch(scores, 0, dataSize, score);
-						if (index < 0) {
-							index = ~index;
+					if (search.stopped) return;
+
+					PriorityQueue<Result<T>> results = new PriorityQueue<>(Result.WORST_FIRST);
+					for (int i = start; i < end; i++) {
+						Entry<T> entry = entries.get(i);
+						float score = entry.getScore(ucTermChars, hitCount.getOrDefault(entry.searchEntry.getIdentifier(), 0));
+						if (score > 0) {
+							Result.offer(results, new Result<>(entry.searchEntry, score, i), maxResults);
 						}
-						System.arraycopy(scores, index, scores, index + 1, dataSize - index);
-						scores[index] = score;
-						consumer.add(index, value.searchEntry);
-					} finally {
-						scoresLock.unlock();
 					}
+
+					search.merge(results);
 				} finally {
-					elapsed.incrementAndGet();
+					search.chunksDone.incrementAndGet();
 				}
 			});
 		}
 
-		return new SearchControl() {
-			@Override
-			public void stop() {
-				control.set(true);
-			}
-
-			@Override
-			public boolean isFinished() {
-				return entries.size() == elapsed.get();
-			}
-
-			@Override
-			public float getProgress() {
-				return (float) elapsed.get() / entries.size();
-			}
-		};
+		return search;
 	}
 
 	public void hit(T entry) {
-		if (entries.containsKey(entry)) {
+		if (index.contains(entry)) {
 			hitCount.compute(entry.getIdentifier(), (_id, i) -> i == null ? 1 : i + 1);
 		}
 	}
 
 	public static final class Entry<T extends SearchEntry> {
 
+		/**
+		 * Scratch buffers of the scorer, reused by every search on a thread.
+		 */
+		private static final ThreadLocal<float[][]> SCORE_BUFFERS = ThreadLocal.withInitial(() -> new float[2][16]);
+
 		public final T searchEntry;
-		private final String[][] components;
+		// the components, upper-cased once
+		private final char[][][] ucComponents;
+		// the length of all components of each name, before upper-casing
+		private final int[] totalLengths;
 
 		private Entry(T searchEntry, String[][] components) {
 			this.searchEntry = searchEntry;
-			this.components = components;
+			this.ucComponents = new char[components.length][][];
+			this.totalLengths = new int[components.length];
+
+			for (int i = 0; i < components.length; i++) {
+				ucComponents[i] = new char[components[i].length][];
+				for (int j = 0; j < components[i].length; j++) {
+					ucComponents[i][j] = components[i][j].toUpperCase(Locale.ROOT).toCharArray();
+					totalLengths[i] += components[i][j].length();
+				}
+			}
+		}
+
+		char[][][] getUpperCaseComponents() {
+			return ucComponents;
 		}
 
 		public float getScore(String term, int hits) {
-			String ucTerm = term.toUpperCase(Locale.ROOT);
-			float maxScore = (float) Arrays.stream(components)
-					.mapToDouble(name -> getScoreFor(ucTerm, name))
-					.max().orElse(0.0);
+			return getScore(term.toUpperCase(Locale.ROOT).toCharArray(), hits);
+		}
+
+		/**
+		 * @param term the search term, upper-cased
+		 */
+		float getScore(char[] term, int hits) {
+			float maxScore = 0;
+			for (int i = 0; i < ucComponents.length; i++) {
+				maxScore = Math.max(maxScore, getScoreFor(term, ucComponents[i], totalLengths[i]));
+			}
 			return maxScore * (hits + 1);
 		}
 
 		/**
 		 * Computes the score for the given <code>name</code> against the given search term.
 		 *
-		 * @param term the search term (expected to be upper-case)
-		 * @param name the entry name, split at word boundaries (see {@link Entry#wordwiseSplit(String)})
+		 * @param term        the search term (expected to be upper-case)
+		 * @param name        the entry name, upper-cased and split at word boundaries (see {@link Entry#wordwiseSplit(String)})
+		 * @param totalLength the length of the name before upper-casing
 		 * @return the computed score for the entry
 		 */
-		private static float getScoreFor(String term, String[] name) {
-			int totalLength = Arrays.stream(name).mapToInt(String::length).sum();
+		private static float getScoreFor(char[] term, char[][] name, int totalLength) {
 			float scorePerChar = 1f / totalLength;
 
-			// This map contains a snapshot of all the states the search has
-			// been in. The keys are the remaining characters of the search
-			// term, the values are the maximum scores for that remaining
-			// search term part.
-			Map<String, Float> snapshots = new HashMap<>();
-			snapshots.put(term, 0f);
+			// scores[k] holds the maximum score for the states of the search
+			// in which the first k characters of the search term were
+			// consumed, or -1 if no such state was reached yet.
+			float[][] buffers = SCORE_BUFFERS.get();
+			if (buffers[0].length <= term.length) {
+				buffers[0] = new float[term.length + 1];
+				buffers[1] = new float[term.length + 1];
+			}
+			float[] scores = buffers[0];
+			float[] newScores = buffers[1];
+			Arrays.fill(scores, 0, term.length + 1, -1f);
+			scores[0] = 0f;
 
-			// For each component, start at each existing snapshot, searching
+			// For each component, start at each existing state, searching
 			// for the next longest match, and calculate the new score for each
-			// match length until the maximum. Then the new scores are put back
-			// into the snapshot map.
+			// match length until the maximum. Then the new scores are merged
+			// back into the existing states.
 			for (int componentIndex = 0; componentIndex < name.length; componentIndex++) {
-				String component = name[componentIndex];
+				char[] component = name[componentIndex];
 				float posMultiplier = (name.length - componentIndex) * 0.3f;
-				Map<String, Float> newSnapshots = new HashMap<>();
-				for (Map.Entry<String, Float> snapshot : snapshots.entrySet()) {
-					String remaining = snapshot.getKey();
-					float score = snapshot.getValue();
-					component = component.toUpperCase(Locale.ROOT);
-					int l = compareEqualLength(remaining, component);
+				Arrays.fill(newScores, 0, term.length + 1, -1f);
+				for (int consumed = 0; consumed < term.length; consumed++) {
+					float score = scores[consumed];
+					if (score < 0) {
+						continue;
+					}
+
+					int l = compareEqualLength(term, consumed, component);
 					for (int i = 1; i <= l; i++) {
 						float baseScore = scorePerChar * i;
 						float chainBonus = (i - 1) * 0.5f;
-						merge(newSnapshots, Collections.singletonMap(remaining.substring(i), score + baseScore * posMultiplier + chainBonus), Math::max);
+						newScores[consumed + i] = Math.max(newScores[consumed + i], score + baseScore * posMultiplier + chainBonus);
 					}
 				}
-				merge(snapshots, newSnapshots, Math::max);
+
+				for (int consumed = 1; consumed <= term.length; consumed++) {
+					scores[consumed] = Math.max(scores[consumed], newScores[consumed]);
+				}
 			}
 
 			// Only return the score for when the search term was completely
 			// consumed.
-			return snapshots.getOrDefault("", 0f);
-		}
-
-		private static <K, V> void merge(Map<K, V> self, Map<K, V> source, BiFunction<V, V, V> combiner) {
-			source.forEach((k, v) -> self.compute(k, (_k, v1) -> v1 == null ? v : v == null ? v1 : combiner.apply(v, v1)));
+			return term.length == 0 ? 0f : Math.max(scores[term.length], 0f);
 		}
 
 		public static <T extends SearchEntry> Entry<T> from(T e) {
@@ -186,9 +217,9 @@ public class SearchUtil<T extends SearchEntry> {
 			return new Entry<>(e, components);
 		}
 
-		private static int compareEqualLength(String s1, String s2) {
+		private static int compareEqualLength(char[] term, int offset, char[] component) {
 			int len = 0;
-			while (len < s1.length() && len < s2.length() && s1.charAt(len) == s2.charAt(len)) {
+			while (offset + len < term.length && len < component.length && term[offset + len] == component[len]) {
 				len += 1;
 			}
 			return len;
@@ -208,7 +239,7 @@ public class SearchUtil<T extends SearchEntry> {
 		 * @param input the input to split
 		 * @return the resulting components
 		 */
-		private static String[] wordwiseSplit(String input) {
+		static String[] wordwiseSplit(String input) {
 			List<String> list = new ArrayList<>();
 			while (!input.isEmpty()) {
 				int take;
@@ -252,17 +283,90 @@ public class SearchUtil<T extends SearchEntry> {
 
 	}
 
-	@FunctionalInterface
-	public interface SearchResultConsumer<T extends SearchEntry> {
-		void add(int index, T entry);
-	}
-
-	public interface SearchControl {
+	public interface SearchControl<T extends SearchEntry> {
 		void stop();
 
 		boolean isFinished();
 
 		float getProgress();
+
+		/**
+		 * Gets the best results found so far, best first, if they changed
+		 * since the last call.
+		 *
+		 * @return the results, or {@code null} if they didn't change
+		 */
+		@Nullable
+		List<T> pollResults();
+	}
+
+	private record Result<T>(T entry, float score, int order) {
+		// worse scores first, ties are broken by the order of the entries
+		private static final Comparator<Result<?>> WORST_FIRST = Comparator.<Result<?>>comparingDouble(Result::score)
+				.thenComparing(Comparator.<Result<?>>comparingInt(Result::order).reversed());
+
+		private static <T> void offer(PriorityQueue<Result<T>> results, Result<T> result, int maxResults) {
+			if (results.size() < maxResults) {
+				results.add(result);
+			} else if (WORST_FIRST.compare(result, results.peek()) > 0) {
+				results.poll();
+				results.add(result);
+			}
+		}
+	}
+
+	private static final class AsyncSearch<T extends SearchEntry> implements SearchControl<T> {
+		private final int maxResults;
+		private final int chunks;
+		private final AtomicInteger chunksDone = new AtomicInteger();
+		private volatile boolean stopped;
+		// guarded by this
+		private final PriorityQueue<Result<T>> results = new PriorityQueue<>(Result.WORST_FIRST);
+		private boolean changed = true;
+
+		private AsyncSearch(int maxResults, int chunks) {
+			this.maxResults = maxResults;
+			this.chunks = chunks;
+		}
+
+		private synchronized void merge(PriorityQueue<Result<T>> chunkResults) {
+			if (stopped || chunkResults.isEmpty()) return;
+
+			for (Result<T> result : chunkResults) {
+				Result.offer(results, result, maxResults);
+			}
+			changed = true;
+		}
+
+		@Override
+		public void stop() {
+			stopped = true;
+		}
+
+		@Override
+		public boolean isFinished() {
+			return chunksDone.get() == chunks;
+		}
+
+		@Override
+		public float getProgress() {
+			return chunks == 0 ? 1 : (float) chunksDone.get() / chunks;
+		}
+
+		@Override
+		@Nullable
+		public synchronized List<T> pollResults() {
+			if (!changed) return null;
+
+			changed = false;
+			List<Result<T>> sorted = new ArrayList<>(results);
+			sorted.sort(Result.WORST_FIRST.reversed());
+			List<T> entries = new ArrayList<>(sorted.size());
+			for (Result<T> result : sorted) {
+				entries.add(result.entry());
+			}
+			return entries;
+		}
 	}
 
 }
@@ -3,6 +3,7 @@ package cuchaz.enigma.gui.stats;
 import cuchaz.enigma.EnigmaProject;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.analysis.index.EntryIndex;
+import cuchaz.enigma.api.service.NameProposalService;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
 import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.mapping.ResolutionStrategy;
@@ -11,105 +12,251 @@ import cuchaz.enigma.translation.representation.entry.*;
 import cuchaz.enigma.utils.I18n;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+/**
+ * Generates the mapping stats of a project. The stats are counted separately
+ * for every top-level class, in parallel, and kept until the class is
+ * {@linkplain #invalidate(Entry) invalidated} by a change to one of its
+ * entries. So generating the stats again only counts the changed classes.
+ * Proposed names may depend on the mappings of entries in other classes, so
+ * they're checked again every time for the entries without a mapped name.
+ */
 public class StatsGenerator {
+    private static final int METHODS = 0;
+    private static final int PARAMETERS = 1;
+    // the parameters of synthetic methods, which are only included on request
+    private static final int SYNTHETIC_PARAMETERS = 2;
+    private static final int FIELDS = 3;
+    private static final int CLASSES = 4;
+    private static final int COUNTERS = 5;
+
     private final EnigmaProject project;
     private final EntryIndex entryIndex;
-    private final EntryRemapper mapper;
     private final EntryResolver entryResolver;
+    private final boolean proposing;
+
+    private Map<ClassEntry, Partition> partitions;
+    private final Map<ClassEntry, ClassStats> classStats = new ConcurrentHashMap<>();
+    private final Set<ClassEntry> invalidated = ConcurrentHashMap.newKeySet();
+    private EntryRemapper countedMapper;
 
     public StatsGenerator(EnigmaProject project) {
         this.project = project;
         this.entryIndex = project.getJarIndex().getEntryIndex();
-        this.mapper = project.getMapper();
         this.entryResolver = project.getJarIndex().getEntryResolver();
+        this.proposing = !project.getEnigma().getServices().get(NameProposalService.TYPE).isEmpty();
+    }
+
+    /**
+     * Marks the stats of the top-level class of an entry as outdated, after
+     * the entry was renamed.
+     */
+    public void invalidate(Entry<?> entry) {
+        invalidated.add(entry.getTopLevelClass());
+        // a method is counted in the class declaring its root
+        for (Entry<?> root : entryResolver.resolveEntry(entry, ResolutionStrategy.RESOLVE_ROOT)) {
+            invalidated.add(root.getTopLevelClass());
+        }
     }
 
     public StatsResult generate(ProgressListener progress, Set<StatsMember> includedMembers, String topLevelPackage, boolean includeSynthetic) {
         includedMembers = EnumSet.copyOf(includedMembers);
-        int totalWork = 0;
+        EntryRemapper mapper = project.getMapper();
+        Map<ClassEntry, ClassStats> snapshot;
+
+        synchronized (this) {
+            if (partitions == null) {
+                partitions = partitionEntries();
+            }
+
+            // all stats are outdated once other mappings were opened
+            if (countedMapper != mapper) {
+                classStats.clear();
+                countedMapper = mapper;
+            }
+
+            List<ClassEntry> outdated = new ArrayList<>();
+            for (ClassEntry topLevelClass : partitions.keySet()) {
+                if (invalidated.remove(topLevelClass) || !classStats.containsKey(topLevelClass)) {
+                    outdated.add(topLevelClass);
+                }
+            }
+
+            progress.init(outdated.size(), I18n.translate("progress.stats"));
+            AtomicInteger numDone = new AtomicInteger();
+            outdated.parallelStream().forEach(topLevelClass -> {
+                progress.step(numDone.getAndIncrement(), topLevelClass.getFullName());
+                classStats.put(topLevelClass, count(partitions.get(topLevelClass)));
+            });
+
+            // the stats are summed from a copy, as another generation may replace them meanwhile
+            snapshot = new HashMap<>(classStats);
+        }
+
+        progress.step(-1, I18n.translate("progress.stats.data"));
+
+        Map<ClassEntry, int[]> unmappedCounts = (proposing ? snapshot.entrySet().parallelStream() : snapshot.entrySet().stream())
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().countUnmapped()));
+
+        int[] counters = getCounters(includedMembers, includeSynthetic);
         int totalMappable = 0;
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<ClassEntry, ClassStats> entry : snapshot.entrySet()) {
+            ClassStats stats = entry.getValue();
+            int[] unmappedCount = unmappedCounts.get(entry.getKey());
+            int unmapped = 0;
+            for (int counter : counters) {
+                totalMappable += stats.total[counter];
+                unmapped += unmappedCount[counter];
+            }
+
+            if (unmapped > 0) {
+                String name = mapper.deobfuscate(entry.getKey()).getName().replace('/', '.');
+                counts.merge(name, unmapped, Integer::sum);
+            }
+        }
+
+        StatsResult.Tree<Integer> tree = new StatsResult.Tree<>();
 
-        if (includedMembers.contains(StatsMember.METHODS) || includedMembers.contains(StatsMember.PARAMETERS)) {
-            totalWork += entryIndex.getMethods().size();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getKey().startsWith(topLevelPackage)) {
+                tree.getNode(entry.getKey()).value = entry.getValue();
+            }
+        }
+
+        tree.collapse(tree.root);
+        return new StatsResult(totalMappable, counts.values().stream().mapToInt(i -> i).sum(), tree);
+    }
+
+    private static int[] getCounters(Set<StatsMember> includedMembers, boolean includeSynthetic) {
+        List<Integer> counters = new ArrayList<>();
+        if (includedMembers.contains(StatsMember.METHODS)) {
+            counters.add(METHODS);
+        }
+
+        if (includedMembers.contains(StatsMember.PARAMETERS)) {
+            counters.add(PARAMETERS);
+            if (includeSynthetic) {
+                counters.add(SYNTHETIC_PARAMETERS);
+            }
         }
 
         if (includedMembers.contains(StatsMember.FIELDS)) {
-            totalWork += entryIndex.getFields().size();
+            counters.add(FIELDS);
         }
 
         if (includedMembers.contains(StatsMember.CLASSES)) {
-            totalWork += entryIndex.getClasses().size();
+            counters.add(CLASSES);
         }
 
-        progress.init(totalWork, I18n.translate("progress.stats"));
+        return counters.stream().mapToInt(i -> i).toArray();
+    }
 
-        Map<String, Integer> counts = new HashMap<>();
+    private Map<ClassEntry, Partition> partitionEntries() {
+        Map<ClassEntry, Partition> partitions = new HashMap<>();
+        for (MethodEntry method : entryIndex.getMethods()) {
+            partitions.computeIfAbsent(method.getTopLevelClass(), c -> new Partition()).methods.add(method);
+        }
 
-        int numDone = 0;
-        if (includedMembers.contains(StatsMember.METHODS) || includedMembers.contains(StatsMember.PARAMETERS)) {
-            for (MethodEntry method : entryIndex.getMethods()) {
-                progress.step(numDone++, I18n.translate("type.methods"));
-                MethodEntry root = entryResolver
-                        .resolveEntry(method, ResolutionStrategy.RESOLVE_ROOT)
-                        .stream()
-                        .findFirst()
-                        .orElseThrow(AssertionError::new);
-
-                if (root == method) {
-                    if (includedMembers.contains(StatsMember.METHODS) && !((MethodDefEntry) method).getAccess().isSynthetic()) {
-                        update(counts, method);
-                        totalMappable ++;
-                    }
+        for (FieldEntry field : entryIndex.getFields()) {
+            partitions.computeIfAbsent(field.getTopLevelClass(), c -> new Partition()).fields.add(field);
+        }
 
-                    if (includedMembers.contains(StatsMember.PARAMETERS) && (!((MethodDefEntry) method).getAccess().isSynthetic() || includeSynthetic)) {
-                        int index = ((MethodDefEntry) method).getAccess().isStatic() ? 0 : 1;
-                        for (TypeDescriptor argument : method.getDesc().getArgumentDescs()) {
-                            update(counts, new LocalVariableEntry(method, index, "", true,null));
-                            index += argument.getSize();
-                            totalMappable ++;
-                        }
-                    }
-                }
-            }
+        for (ClassEntry clazz : entryIndex.getClasses()) {
+            partitions.computeIfAbsent(clazz.getTopLevelClass(), c -> new Partition()).classes.add(clazz);
         }
 
-        if (includedMembers.contains(StatsMember.FIELDS)) {
-            for (FieldEntry field : entryIndex.getFields()) {
-                progress.step(numDone++, I18n.translate("type.fields"));
-                if (!((FieldDefEntry)field).getAccess().isSynthetic()) {
-                    update(counts, field);
-                    totalMappable ++;
+        return partitions;
+    }
+
+    private ClassStats count(Partition partition) {
+        ClassStats stats = new ClassStats();
+
+        for (MethodEntry method : partition.methods) {
+            MethodEntry root = entryResolver
+                    .resolveEntry(method, ResolutionStrategy.RESOLVE_ROOT)
+                    .stream()
+                    .findFirst()
+                    .orElseThrow(AssertionError::new);
+
+            if (root == method) {
+                boolean synthetic = ((MethodDefEntry) method).getAccess().isSynthetic();
+                if (!synthetic) {
+                    stats.update(METHODS, method);
+                }
+
+                int index = ((MethodDefEntry) method).getAccess().isStatic() ? 0 : 1;
+                for (TypeDescriptor argument : method.getDesc().getArgumentDescs()) {
+                    stats.update(synthetic ? SYNTHETIC_PARAMETERS : PARAMETERS, new LocalVariableEntry(method, index, "", true, null));
+                    index += argument.getSize();
                 }
             }
         }
 
-        if (includedMembers.contains(StatsMember.CLASSES)) {
-            for (ClassEntry clazz : entryIndex.getClasses()) {
-                progress.step(numDone++, I18n.translate("type.classes"));
-                update(counts, clazz);
-                totalMappable ++;
+        for (FieldEntry field : partition.fields) {
+            if (!((FieldDefEntry) field).getAccess().isSynthetic()) {
+                stats.update(FIELDS, field);
             }
         }
 
-        progress.step(-1, I18n.translate("progress.stats.data"));
+        for (ClassEntry clazz : partition.classes) {
+            stats.update(CLASSES, clazz);
+        }
 
-        StatsResult.Tree<Integer> tree = new StatsResult.Tree<>();
+        return stats;
+    }
 
-        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
-            if (entry.getKey().startsWith(topLevelPackage)) {
-                tree.getNode(entry.getKey()).value = entry.getValue();
+    /**
+     * The entries of a top-level class and its inner classes.
+     */
+    private static final class Partition {
+        private final List<MethodEntry> methods = new ArrayList<>();
+        private final List<FieldEntry> fields = new ArrayList<>();
+        private final List<ClassEntry> classes = new ArrayList<>();
+    }
+
+    private final class ClassStats {
+        private final int[] total = new int[COUNTERS];
+        private final int[] unmapped = new int[COUNTERS];
+        // the entries without a mapped name, which may have a proposed name
+        private final List<List<Entry<?>>> unmappedEntries = new ArrayList<>();
+
+        private ClassStats() {
+            if (proposing) {
+                for (int i = 0; i < COUNTERS; i++) {
+                    unmappedEntries.add(new ArrayList<>());
+                }
             }
         }
 
-        tree.collapse(tree.root);
-        return new StatsResult(totalMappable, counts.values().stream().mapToInt(i -> i).sum(), tree);
-    }
+        private void update(int counter, Entry<?> entry) {
+            total[counter]++;
+            if (project.isUnmapped(entry)) {
+                unmapped[counter]++;
+                if (proposing) {
+                    unmappedEntries.get(counter).add(entry);
+                }
+            }
+        }
+
+        private int[] countUnmapped() {
+            if (!proposing) {
+                return unmapped;
+            }
+
+            int[] counts = new int[COUNTERS];
+            for (int counter = 0; counter < COUNTERS; counter++) {
+                for (Entry<?> entry : unmappedEntries.get(counter)) {
+                    if (project.isObfuscated(entry)) {
+                        counts[counter]++;
+                    }
+                }
+            }
 
-    private void update(Map<String, Integer> counts, Entry<?> entry) {
-        if (project.isObfuscated(entry)) {
-            String parent = mapper.deobfuscate(entry.getAncestry().get(0)).getName().replace('/', '.');
-            counts.put(parent, counts.getOrDefault(parent, 0) + 1);
+            return counts;
         }
     }
 }
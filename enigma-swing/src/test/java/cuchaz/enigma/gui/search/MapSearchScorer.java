@@ -0,0 +1,72 @@
+package cuchaz.enigma.gui.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * The scorer of {@link SearchUtil.Entry} before it was rewritten to not
+ * allocate, which tracked the states of the search in a map keyed by the
+ * remainder of the search term. Kept as the reference for the current scorer.
+ */
+final class MapSearchScorer {
+	private final String[][] components;
+
+	MapSearchScorer(List<String> names) {
+		this.components = names.stream()
+				.map(SearchUtil.Entry::wordwiseSplit)
+				.toArray(String[][]::new);
+	}
+
+	public float getScore(String term, int hits) {
+		String ucTerm = term.toUpperCase(Locale.ROOT);
+		float maxScore = (float) Arrays.stream(components)
+				.mapToDouble(name -> getScoreFor(ucTerm, name))
+				.max().orElse(0.0);
+		return maxScore * (hits + 1);
+	}
+
+	private static float getScoreFor(String term, String[] name) {
+		int totalLength = Arrays.stream(name).mapToInt(String::length).sum();
+		float scorePerChar = 1f / totalLength;
+
+		Map<String, Float> snapshots = new HashMap<>();
+		snapshots.put(term, 0f);
+
+		for (int componentIndex = 0; componentIndex < name.length; componentIndex++) {
+			String component = name[componentIndex];
+			float posMultiplier = (name.length - componentIndex) * 0.3f;
+			Map<String, Float> newSnapshots = new HashMap<>();
+			for (Map.Entry<String, Float> snapshot : snapshots.entrySet()) {
+				String remaining = snapshot.getKey();
+				float score = snapshot.getValue();
+				component = component.toUpperCase(Locale.ROOT);
+				int l = compareEqualLength(remaining, component);
+				for (int i = 1; i <= l; i++) {
+					float baseScore = scorePerChar * i;
+					float chainBonus = (i - 1) * 0.5f;
+					merge(newSnapshots, Collections.singletonMap(remaining.substring(i), score + baseScore * posMultiplier + chainBonus), Math::max);
+				}
+			}
+			merge(snapshots, newSnapshots, Math::max);
+		}
+
+		return snapshots.getOrDefault("", 0f);
+	}
+
+	private static <K, V> void merge(Map<K, V> self, Map<K, V> source, BiFunction<V, V, V> combiner) {
+		source.forEach((k, v) -> self.compute(k, (_k, v1) -> v1 == null ? v : v == null ? v1 : combiner.apply(v, v1)));
+	}
+
+	private static int compareEqualLength(String s1, String s2) {
+		int len = 0;
+		while (len < s1.length() && len < s2.length() && s1.charAt(len) == s2.charAt(len)) {
+			len += 1;
+		}
+		return len;
+	}
+}
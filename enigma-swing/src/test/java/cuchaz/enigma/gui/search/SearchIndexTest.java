@@ -0,0 +1,113 @@
+package cuchaz.enigma.gui.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SearchIndexTest {
+	static final String[] WORDS = {"minecraft", "Client", "Game", "HTTP", "input", "Stream", "class", "_", "932", "X", "11", "Font", "\u00df", "Stra\u00dfe", "\ufb01le", "$", "a", "b"};
+
+	record TestEntry(List<String> getSearchableNames, String getIdentifier) implements SearchEntry {
+		TestEntry(String... names) {
+			this(List.of(names), String.join(" ", names));
+		}
+	}
+
+	static String randomName(Random random) {
+		StringBuilder name = new StringBuilder();
+		int words = 1 + random.nextInt(4);
+		for (int i = 0; i < words; i++) {
+			String word = WORDS[random.nextInt(WORDS.length)];
+			name.append(random.nextBoolean() ? word : word.toLowerCase(Locale.ROOT));
+		}
+		return name.toString();
+	}
+
+	static String randomTerm(Random random, List<TestEntry> entries) {
+		// mostly take parts of existing names, so that many terms match
+		if (random.nextInt(4) == 0) {
+			return randomName(random);
+		}
+
+		String name = entries.get(random.nextInt(entries.size())).getSearchableNames().get(0);
+		int start = random.nextInt(name.length());
+		int end = start + 1 + random.nextInt(name.length() - start);
+		return name.substring(random.nextBoolean() ? 0 : start, end);
+	}
+
+	static List<TestEntry> randomEntries(Random random, int count) {
+		List<TestEntry> entries = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			entries.add(random.nextInt(3) == 0 ? new TestEntry(randomName(random), randomName(random)) : new TestEntry(randomName(random)));
+		}
+		return entries;
+	}
+
+	@Test
+	public void candidatesContainMatches() {
+		Random random = new Random(42);
+		List<TestEntry> entries = randomEntries(random, 2000);
+		SearchIndex<TestEntry> index = new SearchIndex<>();
+		List<SearchUtil.Entry<TestEntry>> indexed = new ArrayList<>();
+		for (TestEntry entry : entries) {
+			SearchUtil.Entry<TestEntry> searchEntry = SearchUtil.Entry.from(entry);
+			index.add(searchEntry);
+			indexed.add(searchEntry);
+		}
+
+		int matches = 0;
+		for (int i = 0; i < 500; i++) {
+			String ucTerm = randomTerm(random, entries).toUpperCase(Locale.ROOT);
+			Set<TestEntry> candidates = new HashSet<>();
+			index.forEachCandidate(ucTerm, entry -> candidates.add(entry.searchEntry));
+
+			for (SearchUtil.Entry<TestEntry> entry : indexed) {
+				if (entry.getScore(ucTerm.toCharArray(), 0) > 0) {
+					matches++;
+					assertTrue(ucTerm + " matches " + entry.searchEntry, candidates.contains(entry.searchEntry));
+				}
+			}
+		}
+
+		assertTrue(matches > 0);
+	}
+
+	@Test
+	public void removedEntriesAreNotCandidates() {
+		SearchIndex<TestEntry> index = new SearchIndex<>();
+		TestEntry client = new TestEntry("MinecraftClient");
+		TestEntry game = new TestEntry("MinecraftGame");
+		index.add(SearchUtil.Entry.from(client));
+		index.add(SearchUtil.Entry.from(game));
+		assertEquals(2, index.getCandidates("MC").size());
+
+		assertTrue(index.remove(client));
+		assertFalse(index.remove(client));
+		assertFalse(index.contains(client));
+		assertEquals(List.of(game), index.getCandidates("MC").stream().map(entry -> entry.searchEntry).toList());
+
+		// the id of the removed entry is reused
+		TestEntry stream = new TestEntry("InputStream");
+		index.add(SearchUtil.Entry.from(stream));
+		assertEquals(List.of(stream), index.getCandidates("IS").stream().map(entry -> entry.searchEntry).toList());
+		assertEquals(List.of(game), index.getCandidates("MC").stream().map(entry -> entry.searchEntry).toList());
+	}
+
+	@Test
+	public void emptyTermHasNoCandidates() {
+		SearchIndex<TestEntry> index = new SearchIndex<>();
+		index.add(SearchUtil.Entry.from(new TestEntry("Game")));
+
+		assertTrue(index.getCandidates("").isEmpty());
+		assertTrue(index.getCandidates("Z").isEmpty());
+	}
+}
@@ -0,0 +1,54 @@
+package cuchaz.enigma.gui.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures the time to score generated entries against generated search
+ * terms, with the current scorer and with the {@link MapSearchScorer} it
+ * replaced. Run the main method from the test classpath, optionally passing
+ * the number of entries and of terms.
+ */
+public class SearchScoreBenchmark {
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) {
+		int entryCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int termCount = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+		Random random = new Random(42);
+		List<SearchIndexTest.TestEntry> entries = SearchIndexTest.randomEntries(random, entryCount);
+		List<String> terms = new ArrayList<>();
+		for (int i = 0; i < termCount; i++) {
+			terms.add(SearchIndexTest.randomTerm(random, entries));
+		}
+
+		List<SearchUtil.Entry<SearchIndexTest.TestEntry>> searchEntries = entries.stream().map(SearchUtil.Entry::from).toList();
+		List<MapSearchScorer> mapScorers = entries.stream().map(entry -> new MapSearchScorer(entry.getSearchableNames())).toList();
+
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			float total = 0;
+			for (String term : terms) {
+				char[] ucTerm = term.toUpperCase(Locale.ROOT).toCharArray();
+				for (SearchUtil.Entry<SearchIndexTest.TestEntry> entry : searchEntries) {
+					total += entry.getScore(ucTerm, 0);
+				}
+			}
+			long current = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			float mapTotal = 0;
+			for (String term : terms) {
+				for (MapSearchScorer scorer : mapScorers) {
+					mapTotal += scorer.getScore(term, 0);
+				}
+			}
+			long map = System.nanoTime() - start;
+
+			System.out.printf("round %d: current %.1f ms, map %.1f ms (totals %.3f, %.3f)%n", round + 1, current / 1e6, map / 1e6, total, mapTotal);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package cuchaz.enigma.gui.search;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchScoreTest {
+
+	private static void assertSameScore(SearchIndexTest.TestEntry entry, String term, int hits) {
+		float expected = new MapSearchScorer(entry.getSearchableNames()).getScore(term, hits);
+		float actual = SearchUtil.Entry.from(entry).getScore(term, hits);
+		assertEquals(entry + " for " + term, expected, actual, 0f);
+	}
+
+	@Test
+	public void sameScoreAsMapScorer() {
+		Random random = new Random(42);
+		List<SearchIndexTest.TestEntry> entries = SearchIndexTest.randomEntries(random, 500);
+
+		int matches = 0;
+		for (int i = 0; i < 5000; i++) {
+			SearchIndexTest.TestEntry entry = entries.get(random.nextInt(entries.size()));
+			String term = SearchIndexTest.randomTerm(random, entries);
+			assertSameScore(entry, term, random.nextInt(3));
+			if (SearchUtil.Entry.from(entry).getScore(term, 0) > 0) {
+				matches++;
+			}
+		}
+
+		assertTrue(matches > 0);
+	}
+
+	@Test
+	public void sameScoreForCaseLengthChanges() {
+		// upper-casing these names changes their length
+		SearchIndexTest.TestEntry sharp = new SearchIndexTest.TestEntry("stra\u00dfeName", "\u00df");
+		SearchIndexTest.TestEntry ligature = new SearchIndexTest.TestEntry("\ufb01leReader");
+
+		for (String term : List.of("S", "SS", "STRASS", "strasse", "STRASSEN", "sn", "\u00df", "ssn", "F", "fi", "FIL", "FIR", "fileReader", "R", "")) {
+			assertSameScore(sharp, term, 0);
+			assertSameScore(ligature, term, 0);
+		}
+
+		assertTrue(SearchUtil.Entry.from(sharp).getScore("STRASSEN", 0) > 0);
+		assertTrue(SearchUtil.Entry.from(ligature).getScore("FIR", 0) > 0);
+	}
+}
@@ -7,9 +7,11 @@ import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
@@ -18,7 +20,9 @@ import java.util.stream.Stream;
 
 import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
+import javax.annotation.Nullable;
 import cuchaz.enigma.api.service.ObfuscationTestService;
+import cuchaz.enigma.classprovider.CachingClassProvider;
 import cuchaz.enigma.classprovider.ObfuscationFixClassProvider;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.tree.ClassNode;
@@ -29,6 +33,7 @@ import cuchaz.enigma.api.service.NameProposalService;
 import cuchaz.enigma.bytecode.translators.TranslationClassVisitor;
 import cuchaz.enigma.classprovider.ClassProvider;
 import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.DecompilerPool;
 import cuchaz.enigma.source.DecompilerService;
 import cuchaz.enigma.source.SourceSettings;
 import cuchaz.enigma.translation.ProposingTranslator;
@@ -39,7 +44,9 @@ import cuchaz.enigma.translation.mapping.MappingsChecker;
 import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
 import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 import cuchaz.enigma.utils.I18n;
@@ -54,6 +61,11 @@ public class EnigmaProject {
 
 	private EntryRemapper mapper;
 
+	// whether entries neither pass the obfuscation test services nor have a mapped name, see isObfuscated
+	private final Map<Entry<?>, Boolean> obfuscated = new ConcurrentHashMap<>();
+	// whether entries pass the obfuscation test services, which doesn't depend on the mappings
+	private final Map<Entry<?>, Boolean> deobfuscatedByServices = new ConcurrentHashMap<>();
+
 	public EnigmaProject(Enigma enigma, Path jarPath, ClassProvider classProvider, JarIndex jarIndex, byte[] jarChecksum) {
 		Preconditions.checkArgument(jarChecksum.length == 20);
 		this.enigma = enigma;
@@ -71,6 +83,8 @@ public class EnigmaProject {
 		} else {
 			mapper = EntryRemapper.empty(jarIndex);
 		}
+
+		obfuscated.clear();
 	}
 
 	public Enigma getEnigma() {
@@ -104,6 +118,8 @@ public class EnigmaProject {
 		for (Entry<?> entry : dropped) {
 			mappings.trackChange(entry);
 		}
+
+		obfuscated.clear();
 	}
 
 	private Collection<Entry<?>> dropMappings(EntryTree<EntryMapping> mappings, ProgressListener progress) {
@@ -159,58 +175,92 @@ public class EnigmaProject {
 		return obfReference.isNamed() && isRenamable(obfReference.getNameableEntry());
 	}
 
+	/**
+	 * Checks whether an entry is still obfuscated, that is, it neither passes
+	 * an obfuscation test service, nor has a proposed or mapped name. Whether
+	 * it passes a service or has a mapped name is kept until the mappings are
+	 * replaced, or the entry is {@linkplain #invalidateObfuscationStatus(Entry)
+	 * invalidated}. Names are proposed every time, as they may depend on the
+	 * mappings of other entries.
+	 */
 	public boolean isObfuscated(Entry<?> entry) {
-		String name = entry.getName();
+		if (!isUnmapped(entry)) {
+			return false;
+		}
 
-		List<ObfuscationTestService> obfuscationTestServices = this.getEnigma().getServices().get(ObfuscationTestService.TYPE);
-		if (!obfuscationTestServices.isEmpty()) {
-			for (ObfuscationTestService service : obfuscationTestServices) {
-				if (service.testDeobfuscated(entry)) {
-					return false;
-				}
+		for (NameProposalService service : this.getEnigma().getServices().get(NameProposalService.TYPE)) {
+			if (service.proposeName(entry, mapper).isPresent()) {
+				return false;
 			}
 		}
 
-		List<NameProposalService> nameProposalServices = this.getEnigma().getServices().get(NameProposalService.TYPE);
-		if (!nameProposalServices.isEmpty()) {
-			for (NameProposalService service : nameProposalServices) {
-				if (service.proposeName(entry, mapper).isPresent()) {
-					return false;
-				}
-			}
+		return true;
+	}
+
+	/**
+	 * Checks whether an entry neither passes an obfuscation test service, nor
+	 * has a mapped name. Unlike {@link #isObfuscated(Entry)}, this ignores
+	 * proposed names, so the result only changes along with the mapping of
+	 * the entry itself.
+	 */
+	public boolean isUnmapped(Entry<?> entry) {
+		return obfuscated.computeIfAbsent(entry, this::testObfuscated);
+	}
+
+	private boolean testObfuscated(Entry<?> entry) {
+		if (isDeobfuscatedByServices(entry)) {
+			return false;
 		}
 
 		String mappedName = mapper.deobfuscate(entry).getName();
-		if (mappedName != null && !mappedName.isEmpty() && !mappedName.equals(name)) {
+		return mappedName == null || mappedName.isEmpty() || mappedName.equals(entry.getName());
+	}
+
+	/**
+	 * Checks whether any obfuscation test service considers an entry deobfuscated.
+	 */
+	public boolean isDeobfuscatedByServices(Entry<?> entry) {
+		return deobfuscatedByServices.computeIfAbsent(entry, e -> {
+			for (ObfuscationTestService service : this.getEnigma().getServices().get(ObfuscationTestService.TYPE)) {
+				if (service.testDeobfuscated(e)) {
+					return true;
+				}
+			}
+
 			return false;
+		});
+	}
+
+	/**
+	 * Forgets whether the entries named by the mapping of an entry are
+	 * obfuscated, after the mapping changed.
+	 */
+	public void invalidateObfuscationStatus(Entry<?> entry) {
+		obfuscated.remove(entry);
+		// the mappings of methods are shared with the methods they override or are overridden by
+		for (Entry<?> equivalent : jarIndex.getEntryResolver().resolveEquivalentEntries(entry)) {
+			obfuscated.remove(equivalent);
 		}
 
-		return true;
+		// record component getters are renamed along with their fields
+		if (entry instanceof FieldEntry field) {
+			obfuscated.remove(new MethodEntry(field.getParent(), field.getName(), new MethodDescriptor("()" + field.getDesc())));
+		}
 	}
 
 	public JarExport exportRemappedJar(ProgressListener progress) {
 		Collection<ClassEntry> classEntries = jarIndex.getEntryIndex().getClasses();
 		ClassProvider fixingClassProvider = new ObfuscationFixClassProvider(classProvider, jarIndex);
-
-		NameProposalService[] nameProposalServices = getEnigma().getServices().get(NameProposalService.TYPE).toArray(new NameProposalService[0]);
-		Translator deobfuscator = nameProposalServices.length == 0 ? mapper.getDeobfuscator() : new ProposingTranslator(mapper, nameProposalServices);
+		Translator deobfuscator = createExportTranslator();
 
 		AtomicInteger count = new AtomicInteger();
 		progress.init(classEntries.size(), I18n.translate("progress.classes.deobfuscating"));
 
 		Map<String, ClassNode> compiled = classEntries.parallelStream()
 				.map(entry -> {
-					ClassEntry translatedEntry = deobfuscator.translate(entry);
-					progress.step(count.getAndIncrement(), translatedEntry.toString());
+					progress.step(count.getAndIncrement(), () -> deobfuscator.translate(entry).toString());
 
-					ClassNode node = fixingClassProvider.get(entry.getFullName());
-					if (node != null) {
-						ClassNode translatedNode = new ClassNode();
-						node.accept(new TranslationClassVisitor(deobfuscator, Enigma.ASM_VERSION, translatedNode));
-						return translatedNode;
-					}
-
-					return null;
+					return translateClass(fixingClassProvider, deobfuscator, entry);
 				})
 				.filter(Objects::nonNull)
 				.collect(Collectors.toMap(n -> n.name, Functions.identity()));
@@ -218,6 +268,79 @@ public class EnigmaProject {
 		return new JarExport(mapper, compiled);
 	}
 
+	/**
+	 * Decompiles the remapped jar and writes the sources into a directory,
+	 * using one worker per available processor.
+	 *
+	 * @see #exportRemappedSources(Path, ProgressListener, DecompilerService, DecompileErrorStrategy, int)
+	 */
+	public void exportRemappedSources(Path path, ProgressListener progress, DecompilerService decompilerService, DecompileErrorStrategy errorStrategy) throws IOException {
+		exportRemappedSources(path, progress, decompilerService, errorStrategy, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Decompiles the remapped jar and writes the sources into a directory.
+	 *
+	 * <p>Unlike {@link #exportRemappedJar(ProgressListener)} followed by
+	 * {@link JarExport#decompile}, this never holds the whole remapped jar in
+	 * memory. Classes are read and remapped on demand by the decompiling
+	 * workers, and decompiled sources are handed to the writing thread
+	 * through a bounded queue, so workers wait when writing falls behind.
+	 *
+	 * @param path              the directory to write the sources to
+	 * @param progress          the progress listener, stepped for every written class
+	 * @param decompilerService the decompiler to use
+	 * @param errorStrategy     what to do with classes that fail to decompile
+	 * @param workers           the number of decompiling threads
+	 * @throws IllegalStateException if several classes are remapped to the same name
+	 */
+	public void exportRemappedSources(Path path, ProgressListener progress, DecompilerService decompilerService, DecompileErrorStrategy errorStrategy, int workers) throws IOException {
+		Translator deobfuscator = createExportTranslator();
+		ClassProvider fixingClassProvider = new ObfuscationFixClassProvider(classProvider, jarIndex);
+
+		// only the names are kept around, classes are remapped when the decompiler asks for them
+		Map<String, ClassEntry> obfClasses = new HashMap<>();
+		for (ClassEntry entry : jarIndex.getEntryIndex().getClasses()) {
+			String name = deobfuscator.translate(entry).getFullName();
+			ClassEntry previous = obfClasses.putIfAbsent(name, entry);
+			if (previous != null) {
+				throw new IllegalStateException(String.format("Classes %s and %s are both remapped to %s", previous.getFullName(), entry.getFullName(), name));
+			}
+		}
+
+		ClassProvider translatingClassProvider = new CachingClassProvider(name -> {
+			ClassEntry entry = obfClasses.get(name);
+			return entry != null ? translateClass(fixingClassProvider, deobfuscator, entry) : null;
+		});
+
+		List<String> classes = obfClasses.entrySet().stream()
+				.filter(e -> !e.getValue().isInnerClass())
+				.map(Map.Entry::getKey)
+				.toList();
+
+		progress.init(classes.size(), I18n.translate("progress.classes.decompiling"));
+
+		Decompiler decompiler = new DecompilerPool(decompilerService, translatingClassProvider, new SourceSettings(false, false), workers);
+		new SourceExportPipeline(decompiler, mapper, errorStrategy, workers).run(classes, path, progress);
+	}
+
+	private Translator createExportTranslator() {
+		NameProposalService[] nameProposalServices = getEnigma().getServices().get(NameProposalService.TYPE).toArray(new NameProposalService[0]);
+		return nameProposalServices.length == 0 ? mapper.getDeobfuscator() : new ProposingTranslator(mapper, nameProposalServices);
+	}
+
+	@Nullable
+	private static ClassNode translateClass(ClassProvider fixingClassProvider, Translator deobfuscator, ClassEntry entry) {
+		ClassNode node = fixingClassProvider.get(entry.getFullName());
+		if (node != null) {
+			ClassNode translatedNode = new ClassNode();
+			node.accept(new TranslationClassVisitor(deobfuscator, Enigma.ASM_VERSION, translatedNode));
+			return translatedNode;
+		}
+
+		return null;
+	}
+
 	public static final class JarExport {
 		private final EntryRemapper mapper;
 		private final Map<String, ClassNode> compiled;
@@ -260,8 +383,9 @@ public class EnigmaProject {
 
 			progress.init(classes.size(), I18n.translate("progress.classes.decompiling"));
 
-			//create a common instance outside the loop as mappings shouldn't be changing while this is happening
-			Decompiler decompiler = decompilerService.create(compiled::get, new SourceSettings(false, false));
+			//create a common pool outside the loop as mappings shouldn't be changing while this is happening,
+			//every thread of the parallel stream leases its own decompiler instance from it
+			Decompiler decompiler = new DecompilerPool(decompilerService, new CachingClassProvider(compiled::get), new SourceSettings(false, false));
 
 			AtomicInteger count = new AtomicInteger();
 
@@ -269,22 +393,7 @@ public class EnigmaProject {
 					.map(translatedNode -> {
 						progress.step(count.getAndIncrement(), translatedNode.name);
 
-						String source = null;
-						try {
-							source = decompileClass(translatedNode, decompiler);
-						} catch (Throwable throwable) {
-							switch (errorStrategy) {
-								case PROPAGATE: throw throwable;
-								case IGNORE: break;
-								case TRACE_AS_SOURCE: {
-									StringWriter writer = new StringWriter();
-									throwable.printStackTrace(new PrintWriter(writer));
-									source = writer.toString();
-									break;
-								}
-							}
-						}
-
+						String source = decompileClass(translatedNode.name, decompiler, mapper, errorStrategy);
 						if (source == null) {
 							return null;
 						}
@@ -293,10 +402,25 @@ public class EnigmaProject {
 					})
 					.filter(Objects::nonNull);
 		}
+	}
 
-		private String decompileClass(ClassNode translatedNode, Decompiler decompiler) {
-			return decompiler.getSource(translatedNode.name, mapper).asString();
+	@Nullable
+	static String decompileClass(String name, Decompiler decompiler, EntryRemapper mapper, DecompileErrorStrategy errorStrategy) {
+		try {
+			return decompiler.getSource(name, mapper).asString();
+		} catch (Throwable throwable) {
+			switch (errorStrategy) {
+				case PROPAGATE: throw throwable;
+				case IGNORE: break;
+				case TRACE_AS_SOURCE: {
+					StringWriter writer = new StringWriter();
+					throwable.printStackTrace(new PrintWriter(writer));
+					return writer.toString();
+				}
+			}
 		}
+
+		return null;
 	}
 
 	public static final class SourceExport {
@@ -323,7 +447,7 @@ public class EnigmaProject {
 		public final String name;
 		public final String source;
 
-		ClassSource(String name, String source) {
+		public ClassSource(String name, String source) {
 			this.name = name;
 			this.source = source;
 		}
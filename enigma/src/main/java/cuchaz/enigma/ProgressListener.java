@@ -1,5 +1,7 @@
 package cuchaz.enigma;
 
+import java.util.function.Supplier;
+
 public interface ProgressListener {
 	static ProgressListener none() {
 		return new ProgressListener() {
@@ -10,10 +12,30 @@ public interface ProgressListener {
 			@Override
 			public void step(int numDone, String message) {
 			}
+
+			@Override
+			public void step(int numDone, Supplier<String> message) {
+			}
 		};
 	}
 
+	/**
+	 * Wraps a listener so that it's stepped at most every
+	 * {@value ThrottledProgressListener#DEFAULT_INTERVAL} ms, see {@link ThrottledProgressListener}.
+	 */
+	static ProgressListener throttled(ProgressListener listener) {
+		return new ThrottledProgressListener(listener, ThrottledProgressListener.DEFAULT_INTERVAL);
+	}
+
 	void init(int totalWork, String title);
 
 	void step(int numDone, String message);
+
+	/**
+	 * Steps with a message that's only built if the step is shown, which
+	 * avoids building a message for every step of a loop.
+	 */
+	default void step(int numDone, Supplier<String> message) {
+		step(numDone, message.get());
+	}
 }
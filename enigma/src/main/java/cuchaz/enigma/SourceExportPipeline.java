@@ -0,0 +1,112 @@
+package cuchaz.enigma;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.base.Throwables;
+
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+
+/**
+ * Decompiles classes on a fixed number of worker threads and writes the
+ * results on the calling thread. Decompiled sources are passed through a
+ * bounded queue, so at most a few sources per worker are held in memory.
+ */
+final class SourceExportPipeline {
+	private static final EnigmaProject.ClassSource END = new EnigmaProject.ClassSource("", "");
+
+	private final Decompiler decompiler;
+	private final EntryRemapper mapper;
+	private final EnigmaProject.DecompileErrorStrategy errorStrategy;
+	private final int workers;
+
+	SourceExportPipeline(Decompiler decompiler, EntryRemapper mapper, EnigmaProject.DecompileErrorStrategy errorStrategy, int workers) {
+		if (workers <= 0) {
+			throw new IllegalArgumentException("Worker count must be positive");
+		}
+
+		this.decompiler = decompiler;
+		this.mapper = mapper;
+		this.errorStrategy = errorStrategy;
+		this.workers = workers;
+	}
+
+	void run(List<String> classes, Path path, ProgressListener progress) throws IOException {
+		Iterator<String> pending = classes.iterator();
+		BlockingQueue<EnigmaProject.ClassSource> decompiled = new ArrayBlockingQueue<>(this.workers * 2);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.workers);
+
+		try {
+			for (int i = 0; i < this.workers; i++) {
+				executor.execute(() -> {
+					try {
+						String name;
+						while ((name = next(pending)) != null && failure.get() == null) {
+							String source = EnigmaProject.decompileClass(name, this.decompiler, this.mapper, this.errorStrategy);
+							if (source != null) {
+								decompiled.put(new EnigmaProject.ClassSource(name, source));
+							}
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					} finally {
+						try {
+							decompiled.put(END);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				});
+			}
+
+			int finishedWorkers = 0;
+			int count = 0;
+			while (finishedWorkers < this.workers) {
+				EnigmaProject.ClassSource source = decompiled.take();
+				if (source == END) {
+					finishedWorkers++;
+					continue;
+				}
+
+				progress.step(count++, source.name);
+				source.writeTo(source.resolvePath(path));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while exporting sources", e);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		Throwable t = failure.get();
+		if (t != null) {
+			Throwables.throwIfUnchecked(t);
+			throw new RuntimeException(t);
+		}
+	}
+
+	private static String next(Iterator<String> pending) {
+		synchronized (pending) {
+			return pending.hasNext() ? pending.next() : null;
+		}
+	}
+}
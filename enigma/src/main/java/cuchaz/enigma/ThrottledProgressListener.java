@@ -0,0 +1,109 @@
+package cuchaz.enigma;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * A progress listener which passes steps on to another listener at a fixed
+ * rate, and drops the steps in between. The messages of dropped steps given
+ * as suppliers are never built. Steps switching to indeterminate progress
+ * and the last step of the work are always passed on. The latest dropped
+ * step is passed on once the interval elapsed, unless a later step was
+ * passed on before, so that the progress never stays behind. Steps are no
+ * longer dropped once the last step was passed on, until the next
+ * {@linkplain #init(int, String) init}.
+ *
+ * <p>Steps may be reported from several threads at once.
+ */
+public class ThrottledProgressListener implements ProgressListener {
+	public static final long DEFAULT_INTERVAL = 50;
+
+	private static final ScheduledExecutorService FLUSH_EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "Progress step flusher");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final ProgressListener listener;
+	private final long intervalNanos;
+	private final AtomicLong nextStepTime = new AtomicLong();
+	// the latest dropped step, which a flush is scheduled for
+	private final AtomicReference<Step> droppedStep = new AtomicReference<>();
+	private volatile int totalWork;
+	private volatile boolean finished;
+	// the highest step passed on since the last init, guarded by this
+	private int passedNumDone;
+
+	/**
+	 * @param listener the listener to pass the steps on to
+	 * @param interval the time between steps, in milliseconds
+	 */
+	public ThrottledProgressListener(ProgressListener listener, long interval) {
+		this.listener = listener;
+		this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+	}
+
+	@Override
+	public synchronized void init(int totalWork, String title) {
+		this.totalWork = totalWork;
+		this.nextStepTime.set(System.nanoTime());
+		this.droppedStep.set(null);
+		this.finished = false;
+		this.passedNumDone = -1;
+		this.listener.init(totalWork, title);
+	}
+
+	@Override
+	public void step(int numDone, String message) {
+		this.step(numDone, () -> message);
+	}
+
+	@Override
+	public void step(int numDone, Supplier<String> message) {
+		if (this.shouldStep(numDone)) {
+			this.passStep(numDone, message);
+		} else if (!this.finished && this.droppedStep.getAndSet(new Step(numDone, message)) == null) {
+			long delay = this.nextStepTime.get() - System.nanoTime();
+			FLUSH_EXECUTOR.schedule(this::flush, Math.max(delay, 0), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private synchronized void passStep(int numDone, Supplier<String> message) {
+		// the dropped step is older than this one
+		this.droppedStep.set(null);
+		this.passedNumDone = Math.max(this.passedNumDone, numDone);
+		if (numDone >= this.totalWork - 1) {
+			this.finished = true;
+		}
+
+		this.listener.step(numDone, message);
+	}
+
+	private synchronized void flush() {
+		Step step = this.droppedStep.getAndSet(null);
+		// with parallel callers, the step may have been dropped after a later one was passed on
+		if (step != null && !this.finished && step.numDone() > this.passedNumDone) {
+			this.passedNumDone = step.numDone();
+			this.nextStepTime.set(System.nanoTime() + this.intervalNanos);
+			this.listener.step(step.numDone(), step.message());
+		}
+	}
+
+	private boolean shouldStep(int numDone) {
+		if (numDone == -1 || numDone >= this.totalWork - 1) {
+			return true;
+		}
+
+		long now = System.nanoTime();
+		long nextStepTime = this.nextStepTime.get();
+		// only one of the threads reaching the next step time passes its step on
+		return now - nextStepTime >= 0 && this.nextStepTime.compareAndSet(nextStepTime, now + this.intervalNanos);
+	}
+
+	private record Step(int numDone, Supplier<String> message) {
+	}
+}
@@ -0,0 +1,95 @@
+package cuchaz.enigma.analysis;
+
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreeNode;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A reference tree node whose children are only loaded on demand, so that a
+ * tree can be expanded one node at a time instead of to its full depth.
+ * Until its children are loaded, a node is shown as expandable.
+ */
+public abstract class AbstractReferenceTreeNode<E extends Entry<?>, C extends Entry<?>> extends DefaultMutableTreeNode implements ReferenceTreeNode<E, C> {
+	private boolean loaded;
+
+	/**
+	 * Creates the nodes of the references to the entry of this node, without
+	 * adding them to this node.
+	 */
+	protected abstract List<? extends AbstractReferenceTreeNode<?, ?>> createChildren(JarIndex index);
+
+	/**
+	 * Gets the entry whose references are the children of this node.
+	 */
+	protected Entry<?> getReferencedEntry() {
+		return getEntry();
+	}
+
+	/**
+	 * Creates the child nodes of this node, without adding them, so that this
+	 * can run off the EDT. Children which would list the references to the
+	 * same entry as this node or one of its ancestors can't be expanded, as
+	 * they would repeat the same references forever.
+	 */
+	public List<? extends AbstractReferenceTreeNode<?, ?>> loadChildren(JarIndex index) {
+		List<? extends AbstractReferenceTreeNode<?, ?>> children = createChildren(index);
+
+		Set<Entry<?>> visited = new HashSet<>();
+		for (TreeNode node = this; node != null; node = node.getParent()) {
+			if (node instanceof AbstractReferenceTreeNode<?, ?> referenceNode) {
+				visited.add(referenceNode.getReferencedEntry());
+			}
+		}
+
+		for (AbstractReferenceTreeNode<?, ?> child : children) {
+			if (visited.contains(child.getReferencedEntry())) {
+				child.setAllowsChildren(false);
+			}
+		}
+
+		return children;
+	}
+
+	/**
+	 * Replaces the children of this node with loaded ones.
+	 */
+	public void setChildren(List<? extends AbstractReferenceTreeNode<?, ?>> children) {
+		removeAllChildren();
+		children.forEach(this::add);
+		this.loaded = true;
+	}
+
+	/**
+	 * Loads the children of this node, and of all its descendants if {@code recurse} is set.
+	 */
+	public void load(JarIndex index, boolean recurse) {
+		setChildren(loadChildren(index));
+
+		if (recurse && this.children != null) {
+			for (Object child : this.children) {
+				if (child instanceof AbstractReferenceTreeNode<?, ?> node && node.getAllowsChildren()) {
+					node.load(index, true);
+				}
+			}
+		}
+	}
+
+	public boolean isLoaded() {
+		return this.loaded;
+	}
+
+	@Override
+	public boolean isLeaf() {
+		// a node which wasn't loaded yet may have children
+		if (!this.loaded && getAllowsChildren()) {
+			return false;
+		}
+
+		return super.isLeaf();
+	}
+}
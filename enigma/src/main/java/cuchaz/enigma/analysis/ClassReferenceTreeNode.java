@@ -11,20 +11,16 @@
 
 package cuchaz.enigma.analysis;
 
-import com.google.common.collect.Sets;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.analysis.index.ReferenceIndex;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
-import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.TreeNode;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 
-public class ClassReferenceTreeNode extends DefaultMutableTreeNode
-	implements ReferenceTreeNode<ClassEntry, MethodDefEntry> {
+public class ClassReferenceTreeNode extends AbstractReferenceTreeNode<ClassEntry, MethodDefEntry> {
 
 	private Translator deobfuscatingTranslator;
 	private ClassEntry entry;
@@ -60,34 +56,15 @@ public class ClassReferenceTreeNode extends DefaultMutableTreeNode
 		return this.deobfuscatingTranslator.translate(this.entry).getFullName();
 	}
 
-	public void load(JarIndex index, boolean recurse) {
+	@Override
+	protected List<ClassReferenceTreeNode> createChildren(JarIndex index) {
 		ReferenceIndex referenceIndex = index.getReferenceIndex();
 
-		// get all the child nodes
+		List<ClassReferenceTreeNode> children = new ArrayList<>();
 		for (EntryReference<ClassEntry, MethodDefEntry> reference : referenceIndex.getReferencesToClass(this.entry)) {
-			add(new ClassReferenceTreeNode(this.deobfuscatingTranslator, reference));
+			children.add(new ClassReferenceTreeNode(this.deobfuscatingTranslator, reference));
 		}
 
-		if (recurse && this.children != null) {
-			for (Object child : this.children) {
-				if (child instanceof ClassReferenceTreeNode node) {
-
-					// don't recurse into ancestor
-					Set<Entry<?>> ancestors = Sets.newHashSet();
-					TreeNode n = node;
-					while (n.getParent() != null) {
-						n = n.getParent();
-						if (n instanceof ClassReferenceTreeNode) {
-							ancestors.add(((ClassReferenceTreeNode) n).getEntry());
-						}
-					}
-					if (ancestors.contains(node.getEntry())) {
-						continue;
-					}
-
-					node.load(index, true);
-				}
-			}
-		}
+		return children;
 	}
 }
@@ -14,13 +14,15 @@ package cuchaz.enigma.analysis;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.analysis.index.ReferenceIndex;
 import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
-import javax.swing.tree.DefaultMutableTreeNode;
+import java.util.ArrayList;
+import java.util.List;
 
-public class FieldReferenceTreeNode extends DefaultMutableTreeNode implements ReferenceTreeNode<FieldEntry, MethodDefEntry> {
+public class FieldReferenceTreeNode extends AbstractReferenceTreeNode<FieldEntry, MethodDefEntry> {
 
 	private final Translator translator;
 	private FieldEntry entry;
@@ -48,6 +50,12 @@ public class FieldReferenceTreeNode extends DefaultMutableTreeNode implements Re
 		return this.reference;
 	}
 
+	@Override
+	protected Entry<?> getReferencedEntry() {
+		// the children of an access are the references to the accessing method
+		return this.reference != null ? this.reference.context : this.entry;
+	}
+
 	@Override
 	public String toString() {
 		if (this.reference != null) {
@@ -56,28 +64,22 @@ public class FieldReferenceTreeNode extends DefaultMutableTreeNode implements Re
 		return translator.translate(entry).toString();
 	}
 
-	public void load(JarIndex index, boolean recurse) {
+	@Override
+	protected List<AbstractReferenceTreeNode<?, MethodDefEntry>> createChildren(JarIndex index) {
 		ReferenceIndex referenceIndex = index.getReferenceIndex();
 
-		// get all the child nodes
+		// the references to the field, then the references to the methods referencing it
+		List<AbstractReferenceTreeNode<?, MethodDefEntry>> children = new ArrayList<>();
 		if (this.reference == null) {
 			for (EntryReference<FieldEntry, MethodDefEntry> reference : referenceIndex.getReferencesToField(this.entry)) {
-				add(new FieldReferenceTreeNode(translator, reference));
+				children.add(new FieldReferenceTreeNode(translator, reference));
 			}
 		} else {
 			for (EntryReference<MethodEntry, MethodDefEntry> reference : referenceIndex.getReferencesToMethod(this.reference.context)) {
-				add(new MethodReferenceTreeNode(translator, reference));
+				children.add(new MethodReferenceTreeNode(translator, reference));
 			}
 		}
 
-		if (recurse && children != null) {
-			for (Object node : children) {
-				if (node instanceof MethodReferenceTreeNode methodNode) {
-					methodNode.load(index, true, false);
-				} else if (node instanceof FieldReferenceTreeNode fieldNode) {
-					fieldNode.load(index, true);
-				}
-			}
-		}
+		return children;
 	}
 }
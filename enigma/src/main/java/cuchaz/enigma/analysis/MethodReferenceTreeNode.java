@@ -11,26 +11,23 @@
 
 package cuchaz.enigma.analysis;
 
-import com.google.common.collect.Sets;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.analysis.index.ReferenceIndex;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.mapping.EntryResolver;
-import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.TreeNode;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Set;
+import java.util.List;
 
-public class MethodReferenceTreeNode extends DefaultMutableTreeNode implements ReferenceTreeNode<MethodEntry, MethodDefEntry> {
+public class MethodReferenceTreeNode extends AbstractReferenceTreeNode<MethodEntry, MethodDefEntry> {
 
 	private final Translator translator;
 	private MethodEntry entry;
 	private EntryReference<MethodEntry, MethodDefEntry> reference;
+	private boolean recurseMethod;
 
 	public MethodReferenceTreeNode(Translator translator, MethodEntry entry) {
 		this.translator = translator;
@@ -63,34 +60,18 @@ public class MethodReferenceTreeNode extends DefaultMutableTreeNode implements R
 	}
 
 	public void load(JarIndex index, boolean recurse, boolean recurseMethod) {
-		// get all the child nodes
-		Collection<EntryReference<MethodEntry, MethodDefEntry>> references = getReferences(index, recurseMethod);
+		this.recurseMethod = recurseMethod;
+		load(index, recurse);
+	}
 
-		for (EntryReference<MethodEntry, MethodDefEntry> reference : references) {
-			add(new MethodReferenceTreeNode(translator, reference));
+	@Override
+	protected List<MethodReferenceTreeNode> createChildren(JarIndex index) {
+		List<MethodReferenceTreeNode> children = new ArrayList<>();
+		for (EntryReference<MethodEntry, MethodDefEntry> reference : getReferences(index, this.recurseMethod)) {
+			children.add(new MethodReferenceTreeNode(translator, reference));
 		}
 
-		if (recurse && this.children != null) {
-			for (Object child : this.children) {
-				if (child instanceof MethodReferenceTreeNode node) {
-
-					// don't recurse into ancestor
-					Set<Entry<?>> ancestors = Sets.newHashSet();
-					TreeNode n = node;
-					while (n.getParent() != null) {
-						n = n.getParent();
-						if (n instanceof MethodReferenceTreeNode) {
-							ancestors.add(((MethodReferenceTreeNode) n).getEntry());
-						}
-					}
-					if (ancestors.contains(node.getEntry())) {
-						continue;
-					}
-
-					node.load(index, true, false);
-				}
-			}
-		}
+		return children;
 	}
 
 	private Collection<EntryReference<MethodEntry, MethodDefEntry>> getReferences(JarIndex index, boolean recurseMethod) {
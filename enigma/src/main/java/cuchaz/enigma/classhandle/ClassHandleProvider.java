@@ -6,6 +6,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -17,7 +18,10 @@ import cuchaz.enigma.classprovider.ObfuscationFixClassProvider;
 import cuchaz.enigma.events.ClassHandleListener;
 import cuchaz.enigma.events.ClassHandleListener.InvalidationType;
 import cuchaz.enigma.source.*;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
 import cuchaz.enigma.utils.Result;
 
 import static cuchaz.enigma.utils.Utils.withLock;
@@ -31,6 +35,7 @@ public final class ClassHandleProvider {
 	private Decompiler decompiler;
 
 	private final Map<ClassEntry, Entry> handles = new HashMap<>();
+	private final EntryReferenceIndex<Entry> references = new EntryReferenceIndex<>();
 
 	private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -117,6 +122,40 @@ public final class ClassHandleProvider {
 		});
 	}
 
+	/**
+	 * Invalidates mappings for every open class whose source references the
+	 * given entry or one of its equivalent entries. This should be used to
+	 * notify that the mapped name for a single entry has changed, as only the
+	 * affected class handles will be re-remapped.
+	 *
+	 * @param target the obfuscated entry whose mapped name changed
+	 */
+	public void invalidateMappedReferences(cuchaz.enigma.translation.representation.entry.Entry<?> target) {
+		Set<cuchaz.enigma.translation.representation.entry.Entry<?>> targets = new HashSet<>(project.getMapper().getObfResolver().resolveEquivalentEntries(target));
+		targets.add(target);
+
+		// renaming a record component also renames its getter
+		if (target instanceof FieldEntry field) {
+			targets.add(new MethodEntry(field.getParent(), field.getName(), new MethodDescriptor("()" + field.getDesc())));
+		}
+
+		Set<Entry> affected = references.getReferencing(targets);
+		Set<cuchaz.enigma.translation.representation.entry.Entry<?>> changed = Collections.unmodifiableSet(targets);
+		withLock(lock.readLock(), () -> {
+			// a class without a source index still needs its deobfuscated reference updated
+			if (target instanceof ClassEntry classEntry) {
+				Entry e = handles.get(classEntry);
+				if (e != null) {
+					affected.add(e);
+				}
+			}
+
+			affected.stream()
+					.filter(e -> handles.get(e.entry) == e)
+					.forEach(e -> e.invalidateMapped(changed));
+		});
+	}
+
 	/**
 	 * Invalidates all javadoc. This causes all open class handles to be
 	 * re-remapped.
@@ -146,10 +185,19 @@ public final class ClassHandleProvider {
 		});
 	}
 
+	private void updateReferences(Entry entry, SourceIndex index) {
+		withLock(lock.readLock(), () -> {
+			if (handles.get(entry.entry) == entry) {
+				references.update(entry, index);
+			}
+		});
+	}
+
 	private void deleteEntry(Entry entry) {
 		withLock(lock.writeLock(), () -> {
 			handles.remove(entry.entry);
 		});
+		references.remove(entry);
 	}
 
 	/**
@@ -173,6 +221,7 @@ public final class ClassHandleProvider {
 			handles.values().forEach(Entry::destroy);
 			handles.clear();
 		});
+		references.clear();
 	}
 
 	private static final class Entry {
@@ -191,6 +240,7 @@ public final class ClassHandleProvider {
 		private final AtomicInteger javadocVersion = new AtomicInteger();
 		private final AtomicInteger indexVersion = new AtomicInteger();
 		private final AtomicInteger mappedVersion = new AtomicInteger();
+		private volatile int sourceVersion;
 
 		private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -241,6 +291,19 @@ public final class ClassHandleProvider {
 			continueMapSource(CompletableFuture.completedFuture(source));
 		}
 
+		public void invalidateMapped(Set<cuchaz.enigma.translation.representation.entry.Entry<?>> changed) {
+			// only patch the current source if no other remap is still in flight,
+			// otherwise it could be missing changes
+			if (sourceVersion != mappedVersion.get()) {
+				invalidateMapped();
+				return;
+			}
+
+			checkDeobfRefForUpdate();
+			withLock(lock.readLock(), () -> new ArrayList<>(handles)).forEach(h -> h.onInvalidate(InvalidationType.MAPPINGS));
+			continueMapSource(CompletableFuture.completedFuture(source), source -> source.remapSource(p.project, p.project.getMapper().getDeobfuscator(), changed));
+		}
+
 		private CompletableFuture<Result<Source, ClassHandleError>> decompile() {
 			int v = decompileVersion.incrementAndGet();
 			return CompletableFuture.supplyAsync(() -> {
@@ -272,6 +335,7 @@ public final class ClassHandleProvider {
 				return res.andThen(jdSource -> {
 					SourceIndex index = jdSource.index();
 					index.resolveReferences(p.project.getMapper().getObfResolver());
+					p.updateReferences(Entry.this, index);
 					DecompiledClassSource source = new DecompiledClassSource(entry, index);
 					return Result.ok(source);
 				});
@@ -279,14 +343,19 @@ public final class ClassHandleProvider {
 		}
 
 		private void continueMapSource(CompletableFuture<Result<DecompiledClassSource, ClassHandleError>> f) {
+			continueMapSource(f, source -> source.remapSource(p.project, p.project.getMapper().getDeobfuscator()));
+		}
+
+		private void continueMapSource(CompletableFuture<Result<DecompiledClassSource, ClassHandleError>> f, Function<DecompiledClassSource, DecompiledClassSource> remapper) {
 			int v = mappedVersion.incrementAndGet();
 			f.thenApplyAsync(res -> {
 				if (res == null || mappedVersion.get() != v) return null;
-				return res.andThen(source -> Result.ok(source.remapSource(p.project, p.project.getMapper().getDeobfuscator())));
+				return res.andThen(source -> Result.ok(remapper.apply(source)));
 			}, p.pool).whenComplete((res, e) -> {
 				if (e != null) res = Result.err(ClassHandleError.remap(e));
 				if (res == null) return;
 				Entry.this.source = res;
+				Entry.this.sourceVersion = v;
 				Entry.this.waitingSources.forEach(s -> s.complete(source));
 				Entry.this.waitingSources.clear();
 				withLock(lock.readLock(), () -> new ArrayList<>(handles)).forEach(h -> h.onMappedSourceChanged(source));
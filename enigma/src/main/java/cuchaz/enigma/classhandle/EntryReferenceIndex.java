@@ -0,0 +1,89 @@
+package cuchaz.enigma.classhandle;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.source.DecompiledClassSource;
+import cuchaz.enigma.source.SourceIndex;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import static cuchaz.enigma.utils.Utils.withLock;
+
+/**
+ * Reverse index from entries to the holders of the source indices which
+ * contain tokens whose remapped name depends on them.
+ *
+ * @param <H> the type of the holder, usually one per open class
+ */
+final class EntryReferenceIndex<H> {
+
+	private final Multimap<Entry<?>, H> holdersByEntry = HashMultimap.create();
+	private final Map<H, Set<Entry<?>>> entriesByHolder = new HashMap<>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Replaces the entries referenced by the given holder with the ones
+	 * referenced by the given source index.
+	 *
+	 * @param holder the holder of the index
+	 * @param index  the resolved source index
+	 */
+	public void update(H holder, SourceIndex index) {
+		Set<Entry<?>> entries = new HashSet<>();
+		for (EntryReference<Entry<?>, Entry<?>> reference : index.references()) {
+			entries.addAll(DecompiledClassSource.getNameDependencies(reference.getNameableEntry()));
+		}
+
+		withLock(lock.writeLock(), () -> {
+			removeUnlocked(holder);
+			entriesByHolder.put(holder, entries);
+			for (Entry<?> entry : entries) {
+				holdersByEntry.put(entry, holder);
+			}
+		});
+	}
+
+	public void remove(H holder) {
+		withLock(lock.writeLock(), () -> removeUnlocked(holder));
+	}
+
+	public void clear() {
+		withLock(lock.writeLock(), () -> {
+			holdersByEntry.clear();
+			entriesByHolder.clear();
+		});
+	}
+
+	/**
+	 * Gets every holder whose source index references any of the given
+	 * entries.
+	 *
+	 * @param entries the entries to look up
+	 * @return the referencing holders
+	 */
+	public Set<H> getReferencing(Collection<Entry<?>> entries) {
+		return withLock(lock.readLock(), () -> {
+			Set<H> holders = new HashSet<>();
+			for (Entry<?> entry : entries) {
+				holders.addAll(holdersByEntry.get(entry));
+			}
+			return holders;
+		});
+	}
+
+	private void removeUnlocked(H holder) {
+		Set<Entry<?>> previous = entriesByHolder.remove(holder);
+		if (previous != null) {
+			for (Entry<?> entry : previous) {
+				holdersByEntry.remove(entry, holder);
+			}
+		}
+	}
+
+}
@@ -19,6 +19,11 @@ public class CachingClassProvider implements ClassProvider {
             .expireAfterAccess(1, TimeUnit.MINUTES)
             .concurrencyLevel(1)
             .build();
+    private final Cache<String, Optional<byte[]>> bytesCache = CacheBuilder.newBuilder()
+            .maximumSize(128)
+            .expireAfterAccess(1, TimeUnit.MINUTES)
+            .concurrencyLevel(1)
+            .build();
 
     public CachingClassProvider(ClassProvider classProvider) {
         this.classProvider = classProvider;
@@ -33,4 +38,14 @@ public class CachingClassProvider implements ClassProvider {
             throw new RuntimeException(e);
         }
     }
+
+    @Override
+    @Nullable
+    public byte[] getBytes(String name) {
+        try {
+            return bytesCache.get(name, () -> Optional.ofNullable(classProvider.getBytes(name))).orElse(null);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package cuchaz.enigma.classprovider;
 
+import cuchaz.enigma.utils.AsmUtil;
 import org.objectweb.asm.tree.ClassNode;
 
 import javax.annotation.Nullable;
@@ -14,4 +15,20 @@ public interface ClassProvider {
      */
     @Nullable
     ClassNode get(String name);
+
+    /**
+     * Gets the class file bytes for a class. The class provider may return a cached result,
+     * so it's important to not mutate it.
+     *
+     * <p>By default, this serializes the result of {@link #get(String)}. Class providers which
+     * have the bytes at hand should override this to avoid the round trip through ASM.
+     *
+     * @param name the internal name of the class
+     * @return the class file bytes for that class, or {@code null} if it was not found
+     */
+    @Nullable
+    default byte[] getBytes(String name) {
+        ClassNode node = get(name);
+        return node != null ? AsmUtil.nodeToBytes(node) : null;
+    }
 }
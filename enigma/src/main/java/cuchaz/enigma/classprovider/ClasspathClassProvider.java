@@ -24,4 +24,18 @@ public class ClasspathClassProvider implements ClassProvider {
             return null;
         }
     }
+
+    @Nullable
+    @Override
+    public byte[] getBytes(String name) {
+        try (InputStream in = ClasspathClassProvider.class.getResourceAsStream("/" + name + ".class")) {
+            if (in == null) {
+                return null;
+            }
+
+            return in.readAllBytes();
+        } catch (IOException e) {
+            return null;
+        }
+    }
 }
@@ -28,4 +28,18 @@ public class CombiningClassProvider implements ClassProvider {
 
         return null;
     }
+
+    @Override
+    @Nullable
+    public byte[] getBytes(String name) {
+        for (ClassProvider cp : classProviders) {
+            byte[] bytes = cp.getBytes(name);
+
+            if (bytes != null) {
+                return bytes;
+            }
+        }
+
+        return null;
+    }
 }
@@ -50,8 +50,18 @@ public class JarClassProvider implements AutoCloseable, ClassProvider {
             return null;
         }
 
+        return AsmUtil.bytesToNode(getBytes(name));
+    }
+
+    @Nullable
+    @Override
+    public byte[] getBytes(String name) {
+        if (!classNames.contains(name)) {
+            return null;
+        }
+
         try {
-            return AsmUtil.bytesToNode(Files.readAllBytes(fileSystem.getPath(name + ".class")));
+            return Files.readAllBytes(fileSystem.getPath(name + ".class"));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -5,6 +5,7 @@ import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.bytecode.translators.LocalVariableFixVisitor;
 import cuchaz.enigma.bytecode.translators.SourceFixVisitor;
 import cuchaz.enigma.classprovider.ClassProvider;
+import cuchaz.enigma.utils.AsmUtil;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.AbstractInsnNode;
@@ -43,7 +44,7 @@ public class ObfuscationFixClassProvider implements ClassProvider {
     public ClassNode get(String name) {
         ClassNode node = classProvider.get(name);
 
-        if (!jarIndex.isIndexed(name)) {
+        if (node == null || !jarIndex.isIndexed(name)) {
             return node;
         }
 
@@ -57,6 +58,18 @@ public class ObfuscationFixClassProvider implements ClassProvider {
         return fixedNode;
     }
 
+    @Override
+    @Nullable
+    public byte[] getBytes(String name) {
+        if (!jarIndex.isIndexed(name)) {
+            // library classes are passed through unchanged, so their bytes don't need to be rewritten
+            return classProvider.getBytes(name);
+        }
+
+        ClassNode node = get(name);
+        return node != null ? AsmUtil.nodeToBytes(node) : null;
+    }
+
     private void removeRedundantClassCalls(ClassNode node) {
         // Removes .getClass() calls added by Proguard:
         // DUP
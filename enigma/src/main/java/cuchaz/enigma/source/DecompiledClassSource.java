@@ -26,11 +26,22 @@ public class DecompiledClassSource {
 
 	private final TokenStore highlightedTokens;
 
-	private DecompiledClassSource(ClassEntry classEntry, SourceIndex obfuscatedIndex, SourceIndex remappedIndex, TokenStore highlightedTokens) {
+	@Nullable
+	private final String editBase;
+	@Nullable
+	private final List<SourceEdit> edits;
+
+	private DecompiledClassSource(ClassEntry classEntry, SourceIndex obfuscatedIndex, SourceIndex remappedIndex, TokenStore highlightedTokens, @Nullable String editBase, @Nullable List<SourceEdit> edits) {
 		this.classEntry = classEntry;
 		this.obfuscatedIndex = obfuscatedIndex;
 		this.remappedIndex = remappedIndex;
 		this.highlightedTokens = highlightedTokens;
+		this.editBase = editBase;
+		this.edits = edits;
+	}
+
+	private DecompiledClassSource(ClassEntry classEntry, SourceIndex obfuscatedIndex, SourceIndex remappedIndex, TokenStore highlightedTokens) {
+		this(classEntry, obfuscatedIndex, remappedIndex, highlightedTokens, null, null);
 	}
 
 	public DecompiledClassSource(ClassEntry classEntry, SourceIndex index) {
@@ -50,6 +61,116 @@ public class DecompiledClassSource {
 		return new DecompiledClassSource(this.classEntry, this.obfuscatedIndex, remappedIndex, tokenStore);
 	}
 
+	/**
+	 * Remaps this source again, only translating the tokens whose name depends
+	 * on one of the given changed entries. Since name proposal services may
+	 * propose names based on the mappings of any entry, the obfuscated and
+	 * proposed tokens are translated again as well if there are any. Every
+	 * other token keeps its current remapped name and is only moved. The
+	 * edits turning this source into the returned one are available through
+	 * {@link #getEditsFrom}.
+	 *
+	 * <p>If this source has not been remapped yet, this falls back to a full
+	 * remap.
+	 *
+	 * @param project        the project
+	 * @param translator     the translator to remap the changed tokens with
+	 * @param changedEntries the obfuscated entries whose mappings changed
+	 * @return the remapped source
+	 */
+	public DecompiledClassSource remapSource(EnigmaProject project, Translator translator, Set<Entry<?>> changedEntries) {
+		if (this.remappedIndex == this.obfuscatedIndex) {
+			return remapSource(project, translator);
+		}
+
+		String previousSource = this.remappedIndex.getSource();
+		StringBuilder remappedSource = new StringBuilder(previousSource.length());
+		Map<Token, Token> remappedTokens = new HashMap<>();
+		List<SourceEdit> edits = new ArrayList<>();
+		TokenStore tokenStore = TokenStore.create(this.obfuscatedIndex);
+
+		boolean proposing = !project.getEnigma().getServices().get(NameProposalService.TYPE).isEmpty();
+
+		int copiedUntil = 0;
+		int accumulatedOffset = 0;
+		Iterator<Token> previousTokenItr = this.remappedIndex.referenceTokens().iterator();
+		for (Token token : this.obfuscatedIndex.referenceTokens()) {
+			Token previousToken = previousTokenItr.next();
+			Token movedToken = previousToken.move(accumulatedOffset);
+			RenamableTokenType previousType = this.highlightedTokens.getType(previousToken);
+
+			if (dependsOnAny(this.obfuscatedIndex.getReference(token).getNameableEntry(), changedEntries)
+					|| proposing && (previousType == RenamableTokenType.OBFUSCATED || previousType == RenamableTokenType.PROPOSED)) {
+				String remappedName = remapToken(tokenStore, project, token, movedToken, translator);
+				String newText = remappedName != null ? remappedName : token.text;
+
+				if (!newText.equals(previousToken.text)) {
+					remappedSource.append(previousSource, copiedUntil, previousToken.start).append(newText);
+					copiedUntil = previousToken.end;
+					edits.add(new SourceEdit(previousToken.start, previousToken.end, newText));
+
+					accumulatedOffset += newText.length() - previousToken.length();
+					movedToken.text = newText;
+					movedToken.end = movedToken.start + newText.length();
+				}
+			} else if (previousType != null) {
+				tokenStore.add(previousType, movedToken);
+			}
+
+			if (!token.equals(movedToken)) {
+				remappedTokens.put(token, movedToken);
+			}
+		}
+
+		if (edits.isEmpty()) {
+			return new DecompiledClassSource(this.classEntry, this.obfuscatedIndex, this.remappedIndex, tokenStore, previousSource, edits);
+		}
+
+		remappedSource.append(previousSource, copiedUntil, previousSource.length());
+		SourceIndex remappedIndex = this.obfuscatedIndex.remapTo(new SourceRemapper.Result(remappedSource.toString(), remappedTokens));
+		return new DecompiledClassSource(this.classEntry, this.obfuscatedIndex, remappedIndex, tokenStore, previousSource, edits);
+	}
+
+	/**
+	 * Checks whether the remapped name of the given entry depends on the
+	 * mapping of any of the given entries. Inner class names are remapped
+	 * together with all their outer classes.
+	 *
+	 * @param entry   the entry referenced by a token
+	 * @param entries the entries to check against
+	 * @return whether the name of the entry depends on any of the entries
+	 */
+	public static boolean dependsOnAny(Entry<?> entry, Set<Entry<?>> entries) {
+		for (Entry<?> dependency : getNameDependencies(entry)) {
+			if (entries.contains(dependency)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Gets the entries whose mappings the remapped name of the given entry
+	 * depends on.
+	 *
+	 * @param entry the entry referenced by a token
+	 * @return the entry itself, followed by its outer classes if it is a class
+	 */
+	public static List<Entry<?>> getNameDependencies(Entry<?> entry) {
+		if (!(entry instanceof ClassEntry classEntry) || !classEntry.isInnerClass()) {
+			return Collections.singletonList(entry);
+		}
+
+		List<Entry<?>> dependencies = new ArrayList<>();
+		while (classEntry != null) {
+			dependencies.add(classEntry);
+			classEntry = classEntry.getOuterClass();
+		}
+
+		return dependencies;
+	}
+
 	private String remapToken(TokenStore target, EnigmaProject project, Token token, Token movedToken, Translator translator) {
 		EntryReference<Entry<?>, Entry<?>> reference = obfuscatedIndex.getReference(token);
 
@@ -122,10 +243,29 @@ public class DecompiledClassSource {
 		return this.highlightedTokens;
 	}
 
-	public Map<RenamableTokenType, ? extends Collection<Token>> getHighlightedTokens() {
+	public Map<RenamableTokenType, ? extends NavigableSet<Token>> getHighlightedTokens() {
 		return this.highlightedTokens.getByType();
 	}
 
+	/**
+	 * Gets the edits which turn the text of the given source into the text of
+	 * this source, if this source was incrementally remapped from it.
+	 *
+	 * <p>The edits are sorted by position and their offsets refer to the text
+	 * of the given source, so they must be applied from last to first.
+	 *
+	 * @param previous the source currently displayed
+	 * @return the edits, or {@code null} if the whole text has to be replaced
+	 */
+	@Nullable
+	public List<SourceEdit> getEditsFrom(DecompiledClassSource previous) {
+		if (this.edits == null || !this.classEntry.equals(previous.classEntry) || !this.editBase.equals(previous.toString())) {
+			return null;
+		}
+
+		return Collections.unmodifiableList(this.edits);
+	}
+
 	public int getObfuscatedOffset(int deobfOffset) {
 		return getOffset(remappedIndex, obfuscatedIndex, deobfOffset);
 	}
@@ -0,0 +1,145 @@
+package cuchaz.enigma.source;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import cuchaz.enigma.classprovider.ClassProvider;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+
+/**
+ * A decompiler which leases a separate decompiler instance to every thread
+ * currently decompiling, so that the decompiler state (like CFR's
+ * {@code DCCommonState} or Procyon's {@code MetadataSystem}) is never shared
+ * between threads.
+ *
+ * <p>Decompiler instances may keep caching every class they have loaded. To
+ * bound memory usage, an instance is thrown away once it decompiled a
+ * certain number of classes, or when the heap still in use after the last
+ * garbage collection exceeds the memory budget. Heap usage before a
+ * collection isn't considered, as it mostly counts garbage.
+ */
+public class DecompilerPool implements Decompiler {
+	private static final int DEFAULT_CLASS_BUDGET = Integer.getInteger("enigma.decompilerPool.classBudget", 512);
+	private static final double DEFAULT_MEMORY_BUDGET = Double.parseDouble(System.getProperty("enigma.decompilerPool.memoryBudget", "0.75"));
+
+	private final DecompilerService service;
+	private final ClassProvider classProvider;
+	private final SourceSettings settings;
+
+	private final int classBudget;
+	private final double memoryBudget;
+
+	private final Semaphore permits;
+	private final BlockingQueue<PooledDecompiler> idle = new LinkedBlockingQueue<>();
+
+	/**
+	 * Creates a pool with one instance per available processor and the
+	 * default budgets.
+	 */
+	public DecompilerPool(DecompilerService service, ClassProvider classProvider, SourceSettings settings) {
+		this(service, classProvider, settings, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a pool with the given number of instances and the default
+	 * budgets.
+	 */
+	public DecompilerPool(DecompilerService service, ClassProvider classProvider, SourceSettings settings, int size) {
+		this(service, classProvider, settings, size, DEFAULT_CLASS_BUDGET, DEFAULT_MEMORY_BUDGET);
+	}
+
+	/**
+	 * @param service       the decompiler service to create instances with
+	 * @param classProvider the class provider shared by all instances, must be
+	 *                      thread safe
+	 * @param settings      the source settings
+	 * @param size          the maximum number of instances alive at once
+	 * @param classBudget   the number of classes an instance may decompile
+	 *                      before it is recycled
+	 * @param memoryBudget  the fraction of the maximum heap size which, if
+	 *                      still in use after a garbage collection, makes
+	 *                      instances be recycled after use
+	 */
+	public DecompilerPool(DecompilerService service, ClassProvider classProvider, SourceSettings settings, int size, int classBudget, double memoryBudget) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Pool size must be positive");
+		}
+
+		this.service = service;
+		this.classProvider = classProvider;
+		this.settings = settings;
+		this.classBudget = classBudget;
+		this.memoryBudget = memoryBudget;
+		this.permits = new Semaphore(size);
+	}
+
+	@Override
+	public Source getSource(String className, @Nullable EntryRemapper remapper) {
+		PooledDecompiler decompiler = this.lease();
+
+		try {
+			return decompiler.decompiler.getSource(className, remapper);
+		} finally {
+			this.release(decompiler);
+		}
+	}
+
+	private PooledDecompiler lease() {
+		try {
+			this.permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+
+		PooledDecompiler decompiler = this.idle.poll();
+		return decompiler != null ? decompiler : new PooledDecompiler(this.service.create(this.classProvider, this.settings));
+	}
+
+	private void release(PooledDecompiler decompiler) {
+		try {
+			// dropping the instance lets its class caches be collected
+			if (++decompiler.uses < this.classBudget && !this.isOverMemoryBudget()) {
+				this.idle.add(decompiler);
+			}
+		} finally {
+			this.permits.release();
+		}
+	}
+
+	private boolean isOverMemoryBudget() {
+		long used = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			// the usage of a pool right after it was last collected, which is only live objects
+			MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+			if (usage != null) {
+				used += usage.getUsed();
+			}
+		}
+
+		return used > Runtime.getRuntime().maxMemory() * this.memoryBudget;
+	}
+
+	/**
+	 * Drops every idle instance.
+	 */
+	public void clear() {
+		this.idle.clear();
+	}
+
+	private static final class PooledDecompiler {
+		private final Decompiler decompiler;
+		private int uses;
+
+		private PooledDecompiler(Decompiler decompiler) {
+			this.decompiler = decompiler;
+		}
+	}
+}
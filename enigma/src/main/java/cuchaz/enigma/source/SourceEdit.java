@@ -0,0 +1,14 @@
+package cuchaz.enigma.source;
+
+/**
+ * A replacement of a range of remapped source text.
+ *
+ * @param start       the start offset of the replaced range, inclusive
+ * @param end         the end offset of the replaced range, exclusive
+ * @param replacement the text replacing the range
+ */
+public record SourceEdit(int start, int end, String replacement) {
+	public int length() {
+		return this.end - this.start;
+	}
+}
@@ -2,6 +2,8 @@ package cuchaz.enigma.source;
 
 import java.util.*;
 
+import javax.annotation.Nullable;
+
 public final class TokenStore {
 
 	private static final TokenStore EMPTY = new TokenStore(Collections.emptyNavigableSet(), Collections.emptyMap(), null);
@@ -64,6 +66,17 @@ public final class TokenStore {
 		return newPos;
 	}
 
+	@Nullable
+	public RenamableTokenType getType(Token token) {
+		for (Map.Entry<RenamableTokenType, NavigableSet<Token>> entry : this.byType.entrySet()) {
+			if (entry.getValue().contains(token)) {
+				return entry.getKey();
+			}
+		}
+
+		return null;
+	}
+
 	public Map<RenamableTokenType, NavigableSet<Token>> getByType() {
 		return byType;
 	}
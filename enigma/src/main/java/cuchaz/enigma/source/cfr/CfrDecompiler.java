@@ -5,7 +5,6 @@ import cuchaz.enigma.source.Decompiler;
 import cuchaz.enigma.source.Source;
 import cuchaz.enigma.source.SourceSettings;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
-import cuchaz.enigma.utils.AsmUtil;
 import org.benf.cfr.reader.apiunreleased.ClassFileSource2;
 import org.benf.cfr.reader.apiunreleased.JarContent;
 import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
@@ -21,7 +20,6 @@ import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.getopt.Options;
 import org.benf.cfr.reader.util.getopt.OptionsImpl;
 import org.checkerframework.checker.nullness.qual.Nullable;
-import org.objectweb.asm.tree.ClassNode;
 
 import java.util.Collection;
 import java.util.Map;
@@ -57,13 +55,13 @@ public class CfrDecompiler implements Decompiler {
 
             @Override
             public Pair<byte[], String> getClassFileContent(String path) {
-                ClassNode node = classProvider.get(path.substring(0, path.lastIndexOf('.')));
+                byte[] bytes = classProvider.getBytes(path.substring(0, path.lastIndexOf('.')));
 
-                if (node == null) {
+                if (bytes == null) {
                     return null;
                 }
 
-                return new Pair<>(AsmUtil.nodeToBytes(node), path);
+                return new Pair<>(bytes, path);
             }
         });
 
@@ -17,9 +17,7 @@ import cuchaz.enigma.source.Decompiler;
 import cuchaz.enigma.source.SourceSettings;
 import cuchaz.enigma.source.procyon.transformers.*;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
-import cuchaz.enigma.utils.AsmUtil;
 import org.checkerframework.checker.nullness.qual.Nullable;
-import org.objectweb.asm.tree.ClassNode;
 
 public class ProcyonDecompiler implements Decompiler {
 	private final SourceSettings settings;
@@ -28,13 +26,12 @@ public class ProcyonDecompiler implements Decompiler {
 
 	public ProcyonDecompiler(ClassProvider classProvider, SourceSettings settings) {
 		ITypeLoader typeLoader = (name, buffer) -> {
-			ClassNode node = classProvider.get(name);
+			byte[] data = classProvider.getBytes(name);
 
-			if (node == null) {
+			if (data == null) {
 				return false;
 			}
 
-			byte[] data = AsmUtil.nodeToBytes(node);
 			buffer.reset(data.length);
 			System.arraycopy(data, 0, buffer.array(), buffer.position(), data.length);
 			buffer.position(0);
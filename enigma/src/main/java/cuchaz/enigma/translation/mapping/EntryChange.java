@@ -57,6 +57,24 @@ public final class EntryChange<E extends Entry<?>> {
 		return new EntryChange<>(this.target, this.deobfName, this.javadoc, TristateChange.reset());
 	}
 
+	/**
+	 * Merges this change with a later change to the same entry, so that
+	 * applying the result has the same effect as applying both changes.
+	 *
+	 * @param later the later change
+	 * @return the merged change
+	 */
+	public EntryChange<E> mergeWith(EntryChange<?> later) {
+		if (!this.target.equals(later.target)) {
+			throw new IllegalArgumentException("Can't merge changes to different entries");
+		}
+
+		return new EntryChange<>(this.target,
+				later.deobfName.isUnchanged() ? this.deobfName : later.deobfName,
+				later.javadoc.isUnchanged() ? this.javadoc : later.javadoc,
+				later.access.isUnchanged() ? this.access : later.access);
+	}
+
 	public TristateChange<String> getDeobfName() {
 		return this.deobfName;
 	}
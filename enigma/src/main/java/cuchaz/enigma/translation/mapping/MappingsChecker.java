@@ -45,7 +45,7 @@ public class MappingsChecker {
 
 		int steps = 0;
 		for (Entry<?> entry : obfEntries) {
-			progress.step(steps++, entry.toString());
+			progress.step(steps++, entry::toString);
 			tryDropEntry(dropped, entry);
 		}
 
@@ -0,0 +1,71 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.analysis.AbstractReferenceTreeNode;
+import cuchaz.enigma.analysis.FieldReferenceTreeNode;
+import cuchaz.enigma.analysis.MethodReferenceTreeNode;
+import cuchaz.enigma.analysis.ReferenceTargetType;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.translation.VoidTranslator;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
+import org.junit.Test;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.junit.Assert.*;
+
+public class TestReferenceTreeNodes {
+
+	private final ClassEntry classEntry = newClass("a");
+	private final FieldEntry field = newField(classEntry, "a", "I");
+	private final MethodDefEntry getter = MethodDefEntry.parse(classEntry, 0, "a", "()I", null);
+	private final MethodDefEntry caller = MethodDefEntry.parse(classEntry, 0, "b", "()V", null);
+	private final MethodDefEntry recursive = MethodDefEntry.parse(classEntry, 0, "c", "()V", null);
+
+	private JarIndex createIndex() {
+		JarIndex index = JarIndex.empty();
+		index.getReferenceIndex().indexFieldReference(getter, field, ReferenceTargetType.none());
+		index.getReferenceIndex().indexMethodReference(caller, getter, ReferenceTargetType.none());
+		index.getReferenceIndex().indexMethodReference(recursive, recursive, ReferenceTargetType.none());
+		return index;
+	}
+
+	@Test
+	public void fieldTreeExpandsToCallers() {
+		JarIndex index = createIndex();
+		FieldReferenceTreeNode root = new FieldReferenceTreeNode(VoidTranslator.INSTANCE, field);
+		root.load(index, false);
+
+		assertEquals(1, root.getChildCount());
+		FieldReferenceTreeNode access = (FieldReferenceTreeNode) root.getChildAt(0);
+		assertEquals(getter, access.getReference().context);
+		assertTrue(access.getAllowsChildren());
+		assertFalse(access.isLeaf());
+
+		access.load(index, false);
+		assertEquals(1, access.getChildCount());
+		MethodReferenceTreeNode call = (MethodReferenceTreeNode) access.getChildAt(0);
+		assertEquals(caller, call.getReference().context);
+	}
+
+	@Test
+	public void fieldTreeLoadsRecursively() {
+		FieldReferenceTreeNode root = new FieldReferenceTreeNode(VoidTranslator.INSTANCE, field);
+		root.load(createIndex(), true);
+
+		AbstractReferenceTreeNode<?, ?> access = (AbstractReferenceTreeNode<?, ?>) root.getChildAt(0);
+		assertTrue(access.isLoaded());
+		assertEquals(1, access.getChildCount());
+	}
+
+	@Test
+	public void recursiveCallCantBeExpanded() {
+		MethodReferenceTreeNode root = new MethodReferenceTreeNode(VoidTranslator.INSTANCE, recursive);
+		root.load(createIndex(), true);
+
+		assertEquals(1, root.getChildCount());
+		MethodReferenceTreeNode call = (MethodReferenceTreeNode) root.getChildAt(0);
+		assertFalse(call.getAllowsChildren());
+		assertTrue(call.isLeaf());
+	}
+}